@@ -0,0 +1,379 @@
+package js;
+
+import java.util.Calendar;
+import java.util.Locale;
+import java.util.TimeZone;
+
+/**
+ * JSDateFormat is a date format which has been compiled by {@link JSDateUtil#compile(String)}. The format string
+ * is only read once, and the parts of the date which change rarely are remembered between calls, so formatting many
+ * dates close together in time (such as the timestamps of a log) is very quick.<br><br>
+ *
+ * The fields of the date are worked out once per hour, and the finished text is reused for every call within the
+ * same second. A JSDateFormat is not safe to use from more than one thread at once; give each thread its own, or
+ * synchronize on it.
+ *
+ * @author Josh
+ *
+ * @version 1.0.1
+ */
+public class JSDateFormat {
+
+	private static final int LITERAL = 0;
+	private static final int DAY_OF_MONTH_PADDED = 1;
+	private static final int DAY_NAME_SHORT = 2;
+	private static final int DAY_OF_MONTH = 3;
+	private static final int DAY_NAME_LONG = 4;
+	private static final int ISO_DAY_NUMBER = 5;
+	private static final int DAY_SUFFIX = 6;
+	private static final int DAY_OF_WEEK = 7;
+	private static final int DAY_OF_YEAR = 8;
+	private static final int WEEK_OF_YEAR = 9;
+	private static final int MONTH_NAME_LONG = 10;
+	private static final int MONTH_PADDED = 11;
+	private static final int MONTH_NAME_SHORT = 12;
+	private static final int MONTH = 13;
+	private static final int DAYS_IN_MONTH = 14;
+	private static final int YEAR = 15;
+	private static final int YEAR_SHORT = 16;
+	private static final int AM_PM_LOWER = 17;
+	private static final int AM_PM_UPPER = 18;
+	private static final int HOUR_12 = 19;
+	private static final int HOUR_24 = 20;
+	private static final int HOUR_12_PADDED = 21;
+	private static final int HOUR_24_PADDED = 22;
+	private static final int MINUTE_PADDED = 23;
+	private static final int SECOND_PADDED = 24;
+	private static final int MILLISECONDS = 25;
+
+	private static final long SECOND = 1000;
+	private static final long MINUTE = 60 * SECOND;
+	private static final long HOUR = 60 * MINUTE;
+
+	private final String format;
+	private final int[] operations;
+	private final String[] literals;
+	private final boolean usesMilliseconds;
+	/** One bit for each operation in the format, so only the fields it shows are worked out. **/
+	private final long usedOperations;
+	private final Calendar calendar = Calendar.getInstance();
+
+	private long periodStart = Long.MAX_VALUE;
+	private long periodEnd = Long.MIN_VALUE;
+	private int dayOfMonth, dayOfWeek, dayOfYear, weekOfYear, month, daysInMonth, year, hour, firstMinute;
+	private String dayNameShort, dayNameLong, daySuffix, monthNameShort, monthNameLong, amPm;
+
+	private long cachedSecond = Long.MIN_VALUE;
+	private char[] cached = new char[32];
+	private int cachedLength;
+	private final StringBuilder buffer = new StringBuilder(32);
+
+	/**
+	 * Compiles a format string. Use <code>JSDateUtil.compile()</code> to create a JSDateFormat.
+	 */
+	JSDateFormat(String format) {
+		this.format = format;
+		int[] operations = new int[format.length()];
+		String[] literals = new String[format.length()];
+		int count = 0;
+		boolean usesMilliseconds = false;
+		long usedOperations = 0;
+		StringBuilder literal = new StringBuilder();
+
+		for (int i = 0; i < format.length(); i ++) {
+			char c = format.charAt(i);
+			int operation = operationFor(c);
+			if (c == '`') {
+				i ++;
+				if (i < format.length())
+					literal.append(format.charAt(i));
+				continue;
+			}
+			if (operation == LITERAL) {
+				literal.append(c);
+				continue;
+			}
+
+			if (literal.length() > 0) {
+				literals[count] = literal.toString();
+				operations[count ++] = LITERAL;
+				literal.setLength(0);
+			}
+			operations[count ++] = operation;
+			usedOperations |= 1L << operation;
+			if (operation == MILLISECONDS)
+				usesMilliseconds = true;
+		}
+		if (literal.length() > 0) {
+			literals[count] = literal.toString();
+			operations[count ++] = LITERAL;
+		}
+
+		this.operations = new int[count];
+		this.literals = new String[count];
+		System.arraycopy(operations, 0, this.operations, 0, count);
+		System.arraycopy(literals, 0, this.literals, 0, count);
+		this.usesMilliseconds = usesMilliseconds;
+		this.usedOperations = usedOperations;
+	}
+
+	/**
+	 * Returns the format string this JSDateFormat was compiled from.
+	 *
+	 * @return the format string
+	 */
+	public String getFormat() {
+		return format;
+	}
+
+	/**
+	 * Formats the date and time held by a Calendar, using the Calendar's time zone.
+	 *
+	 * @param date the date to format
+	 * @return a string containing the formatted date
+	 */
+	public String format(Calendar date) {
+		useSettingsOf(date);
+		long time = date.getTimeInMillis();
+		// The Calendar has usually worked out its fields already, so read them rather than working them out again
+		if ((time < periodStart || time >= periodEnd) && date.getClass() == calendar.getClass())
+			startPeriod(time, date);
+		return format(time);
+	}
+
+	/**
+	 * Formats a time in the default time zone, or the time zone of the Calendar most recently formatted.
+	 *
+	 * @param time the time to format, in milliseconds since January 1 1970 00:00:00 GMT
+	 * @return a string containing the formatted date
+	 */
+	public String format(long time) {
+		buffer.setLength(0);
+		formatTo(time, buffer);
+		return buffer.toString();
+	}
+
+	/**
+	 * Formats a time in the default time zone, or the time zone of the Calendar most recently formatted, adding the
+	 * text to the end of a StringBuilder. If the time is in the same second as the previous time formatted, no new
+	 * objects are created at all.
+	 *
+	 * @param time the time to format, in milliseconds since January 1 1970 00:00:00 GMT
+	 * @param out the StringBuilder to add the formatted date to
+	 */
+	public void formatTo(long time, StringBuilder out) {
+		long second = Math.floorDiv(time, SECOND);
+		if (second == cachedSecond && ! usesMilliseconds) {
+			out.append(cached, 0, cachedLength);
+			return;
+		}
+		if (time < periodStart || time >= periodEnd) {
+			calendar.setTimeInMillis(time);
+			startPeriod(time, calendar);
+		}
+
+		int start = out.length();
+		int minute = firstMinute + (int) ((time - periodStart) / MINUTE);
+		int seconds = (int) ((time - periodStart) / SECOND % 60);
+		for (int i = 0; i < operations.length; i ++) {
+			switch (operations[i]) {
+			case LITERAL:
+				out.append(literals[i]);
+				break;
+			case DAY_OF_MONTH_PADDED:
+				appendTwoDigits(out, dayOfMonth);
+				break;
+			case DAY_NAME_SHORT:
+				out.append(dayNameShort);
+				break;
+			case DAY_OF_MONTH:
+				out.append(dayOfMonth);
+				break;
+			case DAY_NAME_LONG:
+				out.append(dayNameLong);
+				break;
+			case ISO_DAY_NUMBER:
+				out.append((dayOfWeek == Calendar.SUNDAY) ? 7 : dayOfWeek - 1);
+				break;
+			case DAY_SUFFIX:
+				out.append(daySuffix);
+				break;
+			case DAY_OF_WEEK:
+				out.append(dayOfWeek - 1);
+				break;
+			case DAY_OF_YEAR:
+				out.append(dayOfYear - 1);
+				break;
+			case WEEK_OF_YEAR:
+				out.append(weekOfYear);
+				break;
+			case MONTH_NAME_LONG:
+				out.append(monthNameLong);
+				break;
+			case MONTH_PADDED:
+				appendTwoDigits(out, month + 1);
+				break;
+			case MONTH_NAME_SHORT:
+				out.append(monthNameShort);
+				break;
+			case MONTH:
+				out.append(month + 1);
+				break;
+			case DAYS_IN_MONTH:
+				out.append(daysInMonth);
+				break;
+			case YEAR:
+				out.append(year);
+				break;
+			case YEAR_SHORT:
+				appendTwoDigits(out, year % 100);
+				break;
+			case AM_PM_LOWER:
+				for (int c = 0; c < amPm.length(); c ++)
+					out.append(Character.toLowerCase(amPm.charAt(c)));
+				break;
+			case AM_PM_UPPER:
+				out.append(amPm);
+				break;
+			case HOUR_12:
+				out.append(hour % 12);
+				break;
+			case HOUR_24:
+				out.append(hour);
+				break;
+			case HOUR_12_PADDED:
+				appendTwoDigits(out, hour % 12);
+				break;
+			case HOUR_24_PADDED:
+				appendTwoDigits(out, hour);
+				break;
+			case MINUTE_PADDED:
+				appendTwoDigits(out, minute);
+				break;
+			case SECOND_PADDED:
+				appendTwoDigits(out, seconds);
+				break;
+			case MILLISECONDS:
+				out.append(time);
+				break;
+			}
+		}
+
+		if (! usesMilliseconds) {
+			cachedLength = out.length() - start;
+			if (cachedLength > cached.length)
+				cached = new char[cachedLength * 2];
+			out.getChars(start, out.length(), cached, 0);
+			cachedSecond = second;
+		}
+	}
+
+	/* Begin private methods */
+
+	private static int operationFor(char c) {
+		switch (c) {
+		case 'd': return DAY_OF_MONTH_PADDED;
+		case 'D': return DAY_NAME_SHORT;
+		case 'j': return DAY_OF_MONTH;
+		case 'l': return DAY_NAME_LONG;
+		case 'N': return ISO_DAY_NUMBER;
+		case 'S': return DAY_SUFFIX;
+		case 'w': return DAY_OF_WEEK;
+		case 'z': return DAY_OF_YEAR;
+		case 'W': return WEEK_OF_YEAR;
+		case 'F': return MONTH_NAME_LONG;
+		case 'm': return MONTH_PADDED;
+		case 'M': return MONTH_NAME_SHORT;
+		case 'n': return MONTH;
+		case 't': return DAYS_IN_MONTH;
+		case 'Y': return YEAR;
+		case 'y': return YEAR_SHORT;
+		case 'a': return AM_PM_LOWER;
+		case 'A': return AM_PM_UPPER;
+		case 'g': return HOUR_12;
+		case 'G': return HOUR_24;
+		case 'h': return HOUR_12_PADDED;
+		case 'H': return HOUR_24_PADDED;
+		case 'i': return MINUTE_PADDED;
+		case 's': return SECOND_PADDED;
+		case 'U': return MILLISECONDS;
+		default: return LITERAL;
+		}
+	}
+
+	/**
+	 * Uses the same time zone and week numbering as the specified Calendar, forgetting any remembered fields if they differ.
+	 */
+	private void useSettingsOf(Calendar date) {
+		TimeZone zone = date.getTimeZone();
+		if (zone.equals(calendar.getTimeZone()) && date.getFirstDayOfWeek() == calendar.getFirstDayOfWeek()
+				&& date.getMinimalDaysInFirstWeek() == calendar.getMinimalDaysInFirstWeek())
+			return;
+
+		calendar.setTimeZone(zone);
+		calendar.setFirstDayOfWeek(date.getFirstDayOfWeek());
+		calendar.setMinimalDaysInFirstWeek(date.getMinimalDaysInFirstWeek());
+		periodStart = Long.MAX_VALUE;
+		periodEnd = Long.MIN_VALUE;
+		cachedSecond = Long.MIN_VALUE;
+	}
+
+	/**
+	 * Works out the fields of the date used by the format which stay the same for the hour containing the specified time.
+	 * If the clocks change during that hour, the fields are only remembered for the current minute instead. The fields
+	 * are read from the specified Calendar, which must be set to that time.
+	 */
+	private void startPeriod(long time, Calendar calendar) {
+		int minute = calendar.get(Calendar.MINUTE);
+		long minuteStart = time - calendar.get(Calendar.SECOND) * SECOND - calendar.get(Calendar.MILLISECOND);
+		long hourStart = minuteStart - minute * MINUTE;
+		TimeZone zone = calendar.getTimeZone();
+		int offset = zone.getOffset(time);
+		if (zone.getOffset(hourStart) == offset && zone.getOffset(hourStart + HOUR - 1) == offset) {
+			periodStart = hourStart;
+			periodEnd = hourStart + HOUR;
+			firstMinute = 0;
+		} else {
+			periodStart = minuteStart;
+			periodEnd = minuteStart + MINUTE;
+			firstMinute = minute;
+		}
+
+		Locale locale = Locale.getDefault();
+		dayOfMonth = calendar.get(Calendar.DAY_OF_MONTH);
+		dayOfWeek = calendar.get(Calendar.DAY_OF_WEEK);
+		dayOfYear = calendar.get(Calendar.DAY_OF_YEAR);
+		month = calendar.get(Calendar.MONTH);
+		year = calendar.get(Calendar.YEAR);
+		hour = calendar.get(Calendar.HOUR_OF_DAY);
+		if (uses(WEEK_OF_YEAR))
+			weekOfYear = calendar.get(Calendar.WEEK_OF_YEAR);
+		if (uses(DAYS_IN_MONTH))
+			daysInMonth = calendar.getActualMaximum(Calendar.DAY_OF_MONTH);
+		if (uses(DAY_NAME_SHORT))
+			dayNameShort = calendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.SHORT, locale);
+		if (uses(DAY_NAME_LONG))
+			dayNameLong = calendar.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG, locale);
+		if (uses(MONTH_NAME_SHORT))
+			monthNameShort = calendar.getDisplayName(Calendar.MONTH, Calendar.SHORT, locale);
+		if (uses(MONTH_NAME_LONG))
+			monthNameLong = calendar.getDisplayName(Calendar.MONTH, Calendar.LONG, locale);
+		if (uses(AM_PM_LOWER) || uses(AM_PM_UPPER))
+			amPm = calendar.getDisplayName(Calendar.AM_PM, Calendar.LONG, locale);
+		if (uses(DAY_SUFFIX)) {
+			String suffix = JSUtil.addRankingSuffix(dayOfMonth);
+			daySuffix = suffix.substring(suffix.length() - 2);
+		}
+	}
+
+	private boolean uses(int operation) {
+		return (usedOperations & (1L << operation)) != 0;
+	}
+
+	private static void appendTwoDigits(StringBuilder out, int number) {
+		if (number < 10)
+			out.append('0');
+		out.append(number);
+	}
+
+}
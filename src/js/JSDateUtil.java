@@ -1,8 +1,7 @@
 package js;
 
 import java.util.Calendar;
-import java.util.HashMap;
-import java.util.Locale;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 public class JSDateUtil {
@@ -12,6 +11,16 @@ public class JSDateUtil {
 	public static final long HOUR = 60 * MINUTE;
 	public static final long DAY = 24 * HOUR;
 	
+	private static final int FORMAT_CACHE_SIZE = 16;
+	/** The formats most recently used by <code>formatDate()</code>, so each is only compiled once. **/
+	private static final Map<String, JSDateFormat> formats = new LinkedHashMap<String, JSDateFormat>(32, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		protected boolean removeEldestEntry(Map.Entry<String, JSDateFormat> eldest) {
+			return size() > FORMAT_CACHE_SIZE;
+		}
+	};
+	
 	/**
 	 * Returns the difference between now and the given date in a relative way, for example as <code>5 hours ago</code>. Note that
 	 * this only works for dates in the past, for now. If a future date is given, an empty string will be returned.
@@ -111,104 +120,29 @@ public class JSDateUtil {
 	 * @return a string containing the reformatted date
 	 */
 	public static String formatDate(Calendar date, String format) {
-		String result = "";
-		
-		for (int i = 0; i < format.length(); i ++) {
-			char c = format.charAt(i);
-			switch (c) {
-			case 'd':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.DAY_OF_MONTH), 2);
-				break;
-			case 'D':
-				result += date.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.SHORT, Locale.getDefault());
-				break;
-			case 'j':
-				result += date.get(Calendar.DAY_OF_MONTH);
-				break;
-			case 'l':
-				result += date.getDisplayName(Calendar.DAY_OF_WEEK, Calendar.LONG, Locale.getDefault());
-				break;
-			case 'N':
-				result += getISODayNumber(date);
-				break;
-			case 'S':
-				String s = JSUtil.addRankingSuffix(date.get(Calendar.DAY_OF_MONTH));
-				result += s.substring(s.length() - 2);
-				break;
-			case 'w':
-				result += (date.get(Calendar.DAY_OF_WEEK) - 1);
-				break;
-			case 'z':
-				result += (date.get(Calendar.DAY_OF_YEAR) - 1);
-				break;
-			case 'W':
-				result += date.get(Calendar.WEEK_OF_YEAR);
-				break;
-			case 'F':
-				result += date.getDisplayName(Calendar.MONTH, Calendar.LONG, Locale.getDefault());
-				break;
-			case 'm':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.MONTH) + 1, 2);
-				break;
-			case 'M':
-				result += date.getDisplayName(Calendar.MONTH, Calendar.SHORT, Locale.getDefault());
-				break;
-			case 'n':
-				result += (date.get(Calendar.MONTH) + 1);
-				break;
-			case 't':
-				result += date.getActualMaximum(Calendar.DAY_OF_MONTH);
-				break;
-			case 'Y':
-				result += date.get(Calendar.YEAR);
-				break;
-			case 'y':
-				result += Integer.toString(date.get(Calendar.YEAR)).substring(2);
-				break;
-			case 'a':
-				result += date.getDisplayName(Calendar.AM_PM, Calendar.LONG, Locale.getDefault()).toLowerCase();
-				break;
-			case 'A':
-				result += date.getDisplayName(Calendar.AM_PM, Calendar.LONG, Locale.getDefault());
-				break;
-			case 'g':
-				result += date.get(Calendar.HOUR);
-				break;
-			case 'G':
-				result += date.get(Calendar.HOUR_OF_DAY);
-				break;
-			case 'h':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.HOUR), 2);
-				break;
-			case 'H':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.HOUR_OF_DAY), 2);
-				break;
-			case 'i':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.MINUTE), 2);
-				break;
-			case 's':
-				result += JSUtil.formatWithPlaceValues(date.get(Calendar.SECOND), 2);
-				break;
-			case 'U':
-				result += Long.toString(date.getTimeInMillis());
-				break;
-			case '`':
-				i ++;
-				result += format.charAt(i);
-				break;
-			default:
-				result += c;
+		JSDateFormat compiled;
+		synchronized (formats) {
+			compiled = formats.get(format);
+			if (compiled == null) {
+				compiled = compile(format);
+				formats.put(format, compiled);
 			}
 		}
-		
-		return result;
+		synchronized (compiled) {
+			return compiled.format(date);
+		}
 	}
 	
-	private static int getISODayNumber(Calendar d) {
-		int day = d.get(Calendar.DAY_OF_WEEK);
-		day --;
-		if (day == 0)
-			day = 7;
-		return day;
+	/**
+	 * Compiles a format string, using the same characters as <code>formatDate()</code>, into a JSDateFormat which can
+	 * format many dates without reading the format string again. This is much quicker than calling <code>formatDate()</code>
+	 * repeatedly with the same format, especially for dates close together in time.
+	 * 
+	 * @param format a string containing symbols representing the format dates should take
+	 * @return the compiled format
+	 * @see #formatDate(Calendar, String)
+	 */
+	public static JSDateFormat compile(String format) {
+		return new JSDateFormat(format);
 	}
 }
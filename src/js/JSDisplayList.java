@@ -0,0 +1,326 @@
+package js;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.GradientPaint;
+import java.awt.Graphics2D;
+import java.awt.Image;
+import java.awt.Polygon;
+import java.awt.Stroke;
+import java.awt.geom.AffineTransform;
+import java.awt.image.ImageObserver;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * JSDisplayList records drawing commands so they can be replayed onto a {@link Graphics2D} as many times as needed, as
+ * {@link JSPrintPreview} does each time its page is painted or printed.<br><br>
+ *
+ * Each command is stored as an opcode followed by its whole-number operands, one after the other in a single
+ * <code>int[]</code>. Anything which isn't a number, such as a string, font or image, is stored once in a separate table
+ * and referred to by its position in it. Equal colours and fonts share a single entry. Recording a command therefore
+ * creates no objects of its own, and replaying the list is a single loop over the array.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0.1
+ */
+class JSDisplayList {
+
+	private static final int ALIGN_LEFT = 0;
+
+	private static final int DRAW_LINE = 0;
+	private static final int SET_COLOR = 1;
+	private static final int DRAW_STRING = 3;
+	private static final int DRAW_RECT = 4;
+	private static final int FILL_RECT = 5;
+	private static final int DRAW_OVAL = 6;
+	private static final int FILL_OVAL = 7;
+	private static final int DRAW_IMAGE = 8;
+	private static final int DRAW_IMAGE_2 = 9;
+	private static final int SET_FONT = 10;
+	private static final int DRAW_POLY = 11;
+	private static final int FILL_POLY = 12;
+	private static final int DRAW_POLY_2 = 13;
+	private static final int FILL_POLY_2 = 14;
+	private static final int SET_STROKE = 15;
+	private static final int AFFINE_TRANSFORM = 16;
+	private static final int SET_GRADUATED_FILL = 17;
+	private static final int DRAW_ARC = 18;
+	private static final int FILL_ARC = 19;
+
+	private int[] commands = new int[1024];
+	private int length;
+	private Object[] objects = new Object[64];
+	private int objectCount;
+	/** The table positions of colours and fonts, so each distinct one is only stored once. **/
+	private HashMap<Object, Integer> shared = new HashMap<Object, Integer>();
+	private int modificationCount;
+
+	void drawLine(int x1, int y1, int x2, int y2) {
+		add(DRAW_LINE, x1, y1, x2, y2);
+	}
+
+	void setColor(Color color) {
+		add(SET_COLOR, share(color));
+	}
+
+	void setColor(int red, int green, int blue) {
+		setColor(new Color(red, green, blue));
+	}
+
+	void drawString(String text, int x, int y, int alignment) {
+		add(DRAW_STRING, object(text), x, y, alignment);
+	}
+
+	void drawRect(int x, int y, int width, int height) {
+		add(DRAW_RECT, x, y, width, height);
+	}
+
+	void fillRect(int x, int y, int width, int height) {
+		add(FILL_RECT, x, y, width, height);
+	}
+
+	void drawOval(int x, int y, int width, int height) {
+		add(DRAW_OVAL, x, y, width, height);
+	}
+
+	void fillOval(int x, int y, int width, int height) {
+		add(FILL_OVAL, x, y, width, height);
+	}
+
+	void drawImage(Image image, int x, int y, ImageObserver observer) {
+		add(DRAW_IMAGE, object(image), x, y, object(observer));
+	}
+
+	void drawImage(Image image, int x, int y, int width, int height, ImageObserver observer) {
+		add(DRAW_IMAGE_2, object(image), x, y, width, height, object(observer));
+	}
+
+	void setFont(Font font) {
+		add(SET_FONT, share(font));
+	}
+
+	void drawPoly(int[] xPoints, int[] yPoints, int points) {
+		add(DRAW_POLY, object(xPoints), object(yPoints), points);
+	}
+
+	void fillPoly(int[] xPoints, int[] yPoints, int points) {
+		add(FILL_POLY, object(xPoints), object(yPoints), points);
+	}
+
+	void drawPoly(Polygon polygon) {
+		add(DRAW_POLY_2, object(polygon));
+	}
+
+	void fillPoly(Polygon polygon) {
+		add(FILL_POLY_2, object(polygon));
+	}
+
+	void setStroke(Stroke stroke) {
+		add(SET_STROKE, object(stroke));
+	}
+
+	void setTransform(AffineTransform transform) {
+		add(AFFINE_TRANSFORM, object(transform));
+	}
+
+	void setPaint(GradientPaint paint) {
+		add(SET_GRADUATED_FILL, object(paint));
+	}
+
+	void drawArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+		add(DRAW_ARC, x, y, width, height, startAngle, arcAngle);
+	}
+
+	void fillArc(int x, int y, int width, int height, int startAngle, int arcAngle) {
+		add(FILL_ARC, x, y, width, height, startAngle, arcAngle);
+	}
+
+	/**
+	 * Returns a number which changes whenever a command is recorded, so anything drawn from the list can tell whether it is
+	 * out of date.
+	 *
+	 * @return the number of changes made to the list
+	 */
+	int getModificationCount() {
+		return modificationCount;
+	}
+
+	/**
+	 * Draws every recorded command, in order.
+	 *
+	 * @param g2D the graphics to draw onto
+	 * @return <code>true</code> if everything was drawn; <code>false</code> if any image hadn't finished loading yet.
+	 */
+	boolean replay(Graphics2D g2D) {
+		int[] c = commands;
+		Object[] o = objects;
+		boolean complete = true;
+		int pc = 0;
+		while (pc < length) {
+			switch (c[pc]) {
+			case DRAW_LINE:
+				g2D.drawLine(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4]);
+				pc += 5;
+				break;
+			case SET_COLOR:
+				g2D.setColor((Color) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case DRAW_STRING:
+				String text = (String) o[c[pc + 1]];
+				int x = c[pc + 2];
+				if (c[pc + 4] != ALIGN_LEFT)
+					x -= g2D.getFontMetrics().stringWidth(text);
+				g2D.drawString(text, x, c[pc + 3]);
+				pc += 5;
+				break;
+			case DRAW_RECT:
+				g2D.drawRect(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4]);
+				pc += 5;
+				break;
+			case FILL_RECT:
+				g2D.fillRect(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4]);
+				pc += 5;
+				break;
+			case DRAW_OVAL:
+				g2D.drawOval(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4]);
+				pc += 5;
+				break;
+			case FILL_OVAL:
+				g2D.fillOval(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4]);
+				pc += 5;
+				break;
+			case DRAW_IMAGE:
+				complete &= g2D.drawImage((Image) o[c[pc + 1]], c[pc + 2], c[pc + 3], (ImageObserver) o[c[pc + 4]]);
+				pc += 5;
+				break;
+			case DRAW_IMAGE_2:
+				complete &= g2D.drawImage((Image) o[c[pc + 1]], c[pc + 2], c[pc + 3], c[pc + 4], c[pc + 5], (ImageObserver) o[c[pc + 6]]);
+				pc += 7;
+				break;
+			case SET_FONT:
+				g2D.setFont((Font) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case DRAW_POLY:
+				g2D.drawPolygon((int[]) o[c[pc + 1]], (int[]) o[c[pc + 2]], c[pc + 3]);
+				pc += 4;
+				break;
+			case FILL_POLY:
+				g2D.fillPolygon((int[]) o[c[pc + 1]], (int[]) o[c[pc + 2]], c[pc + 3]);
+				pc += 4;
+				break;
+			case DRAW_POLY_2:
+				g2D.drawPolygon((Polygon) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case FILL_POLY_2:
+				g2D.fillPolygon((Polygon) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case SET_STROKE:
+				g2D.setStroke((Stroke) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case AFFINE_TRANSFORM:
+				g2D.setTransform((AffineTransform) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case SET_GRADUATED_FILL:
+				g2D.setPaint((GradientPaint) o[c[pc + 1]]);
+				pc += 2;
+				break;
+			case DRAW_ARC:
+				g2D.drawArc(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4], c[pc + 5], c[pc + 6]);
+				pc += 7;
+				break;
+			case FILL_ARC:
+				g2D.fillArc(c[pc + 1], c[pc + 2], c[pc + 3], c[pc + 4], c[pc + 5], c[pc + 6]);
+				pc += 7;
+				break;
+			default:
+				throw new IllegalStateException("Unknown drawing command " + c[pc] + " at " + pc + ".");
+			}
+		}
+		return complete;
+	}
+
+	/* Begin private methods */
+
+	private void add(int opcode, int a) {
+		int at = reserve(2);
+		commands[at] = opcode;
+		commands[at + 1] = a;
+	}
+
+	private void add(int opcode, int a, int b, int c) {
+		int at = reserve(4);
+		commands[at] = opcode;
+		commands[at + 1] = a;
+		commands[at + 2] = b;
+		commands[at + 3] = c;
+	}
+
+	private void add(int opcode, int a, int b, int c, int d) {
+		int at = reserve(5);
+		commands[at] = opcode;
+		commands[at + 1] = a;
+		commands[at + 2] = b;
+		commands[at + 3] = c;
+		commands[at + 4] = d;
+	}
+
+	private void add(int opcode, int a, int b, int c, int d, int e, int f) {
+		int at = reserve(7);
+		commands[at] = opcode;
+		commands[at + 1] = a;
+		commands[at + 2] = b;
+		commands[at + 3] = c;
+		commands[at + 4] = d;
+		commands[at + 5] = e;
+		commands[at + 6] = f;
+	}
+
+	/**
+	 * Makes room for a command of the specified length at the end of the list.
+	 *
+	 * @return the position of the command.
+	 */
+	private int reserve(int count) {
+		if (length + count > commands.length)
+			commands = Arrays.copyOf(commands, Math.max(commands.length * 2, length + count));
+		int at = length;
+		length += count;
+		modificationCount ++;
+		return at;
+	}
+
+	/**
+	 * Adds an object to the table.
+	 *
+	 * @return the position of the object in the table.
+	 */
+	private int object(Object object) {
+		if (objectCount == objects.length)
+			objects = Arrays.copyOf(objects, objects.length * 2);
+		objects[objectCount] = object;
+		return objectCount ++;
+	}
+
+	/**
+	 * Adds an immutable object to the table, unless an equal one is already in it.
+	 *
+	 * @return the position of the object in the table.
+	 */
+	private int share(Object value) {
+		Integer position = shared.get(value);
+		if (position == null) {
+			position = object(value);
+			shared.put(value, position);
+		}
+		return position;
+	}
+
+}
@@ -0,0 +1,286 @@
+package js;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import js.exception.NoMoreLinesException;
+
+/**
+ * JSLineReader reads a text file a line at a time, in order or by line number, without reading the whole file into
+ * memory first. The file is mapped into memory by the operating system, and only the lines which are actually read
+ * are turned into <code>String</code>s, so even files several gigabytes in size can be opened instantly.<br><br>
+ *
+ * The position of each line is worked out the first time a line at or beyond it is needed, and remembered in a
+ * compact index, so reading a line a second time, or any line before it, doesn't search the file again.
+ * <code>getNumberOfLines()</code> has to search the whole file the first time it is called.<br><br>
+ *
+ * Lines are decoded using the platform's default character set, which must use single bytes for line breaks
+ * (as UTF-8 and ISO-8859-1 do). The file should not be changed while it is being read.
+ *
+ * @author Josh
+ *
+ * @version 1.0
+ */
+public class JSLineReader implements Iterable<String>, Closeable {
+
+	private static final int REGION_SHIFT = 30;
+	private static final int REGION_SIZE = 1 << REGION_SHIFT;
+
+	private String filename;
+	private FileChannel channel;
+	private MappedByteBuffer[] regions;
+	private long size;
+	private Charset charset = Charset.defaultCharset();
+
+	private long[] lineStarts = new long[1024];
+	private int indexedLines;
+	private long scannedTo;
+	private boolean complete;
+	private int currentLine;
+
+	/**
+	 * Opens the specified file for reading. If the file can't be opened, the reader behaves as if the file were empty.
+	 *
+	 * @param filename the location of the text file on disk that should be read
+	 */
+	public JSLineReader(String filename) {
+		this.filename = filename;
+		try {
+			channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			size = channel.size();
+			regions = map(channel, size);
+		} catch (IOException e) {
+			e.printStackTrace();
+			regions = new MappedByteBuffer[0];
+			size = 0;
+		}
+
+		if (size > 0)
+			lineStarts[indexedLines ++] = 0;
+		else
+			complete = true;
+	}
+
+	/**
+	 * Opens the specified file for reading, optionally skipping the first line, since this often includes
+	 * 'template' data which does not need to be read.
+	 *
+	 * @param filename the location of the text file on disk that should be read
+	 * @param hasTemplateLine whether or not the first line of the file should be skipped
+	 */
+	public JSLineReader(String filename, boolean hasTemplateLine) {
+		this(filename);
+		if (hasTemplateLine)
+			currentLine ++;
+	}
+
+	/**
+	 * Reads the next unread line of the file.
+	 *
+	 * @return the text from the next line of the file, or an empty string if every line has been read
+	 */
+	public String readLine() {
+		if (! hasMoreLines()) {
+			NoMoreLinesException e = new NoMoreLinesException("End of file \"" + filename + "\" reached.");
+			e.printStackTrace();
+			return "";
+		}
+		return readLine(currentLine ++);
+	}
+
+	/**
+	 * Reads the line with the specified number, without changing which line <code>readLine()</code> reads next.
+	 *
+	 * @param line the number of the line to read, starting from 0
+	 * @return the text of the line, without its line break
+	 * @throws IndexOutOfBoundsException if the file does not have that many lines
+	 */
+	public String readLine(int line) {
+		indexTo(line + 1);
+		if (line < 0 || line >= indexedLines)
+			throw new IndexOutOfBoundsException("Line " + line + " is beyond the end of \"" + filename + "\".");
+
+		long start = lineStarts[line];
+		long end;
+		if (line + 1 < indexedLines) {
+			end = lineStarts[line + 1] - 1;
+		} else {
+			end = size;
+			if (byteAt(regions, end - 1) == '\n')
+				end --;
+		}
+		if (end > start && byteAt(regions, end - 1) == '\r')
+			end --;
+		return decode(regions, start, (int) (end - start), charset);
+	}
+
+	/**
+	 * Determines whether there are any unread lines left in the file.
+	 *
+	 * @return <code>true</code> if any lines remain unread, <code>false</code> otherwise.
+	 */
+	public boolean hasMoreLines() {
+		return indexTo(currentLine);
+	}
+
+	/**
+	 * Returns the total number of lines in the file. The first time this is called, the whole file is searched.
+	 *
+	 * @return the total line count for the file
+	 */
+	public int getNumberOfLines() {
+		indexTo(Integer.MAX_VALUE);
+		return indexedLines;
+	}
+
+	/**
+	 * Returns the number of the next line which <code>readLine()</code> will read.
+	 *
+	 * @return the index of the next unread line of the file
+	 */
+	public int getCurrentLineNumber() {
+		return currentLine;
+	}
+
+	/**
+	 * Sets which line <code>readLine()</code> will read next.
+	 *
+	 * @param line the number of the next line to read, starting from 0
+	 */
+	public void setCurrentLineNumber(int line) {
+		currentLine = line;
+	}
+
+	/**
+	 * Returns an iterator over every line of the file, from the first. Iterating does not change which line
+	 * <code>readLine()</code> reads next.
+	 *
+	 * @return an iterator over the lines of the file
+	 */
+	public Iterator<String> iterator() {
+		return new Iterator<String>() {
+			private int next;
+
+			public boolean hasNext() {
+				return indexTo(next);
+			}
+
+			public String next() {
+				if (! hasNext())
+					throw new NoSuchElementException();
+				return readLine(next ++);
+			}
+
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+
+	/**
+	 * Closes the file. The memory it was mapped to is released once the reader is no longer used.
+	 */
+	public void close() {
+		regions = new MappedByteBuffer[0];
+		size = 0;
+		indexedLines = 0;
+		complete = true;
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		channel = null;
+	}
+
+	/* Begin private methods */
+
+	/**
+	 * Searches the file until the start of the specified line is known, or the end of the file is reached.
+	 *
+	 * @return <code>true</code> if the line exists.
+	 */
+	private boolean indexTo(int line) {
+		while (indexedLines <= line && ! complete) {
+			long newline = findNewline(regions, scannedTo, size);
+			if (newline < 0 || newline + 1 >= size) {
+				complete = true;
+				scannedTo = size;
+				break;
+			}
+			scannedTo = newline + 1;
+			if (indexedLines == lineStarts.length) {
+				long[] grown = new long[lineStarts.length * 2];
+				System.arraycopy(lineStarts, 0, grown, 0, indexedLines);
+				lineStarts = grown;
+			}
+			lineStarts[indexedLines ++] = scannedTo;
+		}
+		return line < indexedLines;
+	}
+
+	/* Begin methods shared with JSLineSpliterator */
+
+	/**
+	 * Maps the whole of a file into memory, in as many regions as it takes.
+	 */
+	static MappedByteBuffer[] map(FileChannel channel, long size) throws IOException {
+		MappedByteBuffer[] regions = new MappedByteBuffer[(int) ((size + REGION_SIZE - 1) >>> REGION_SHIFT)];
+		for (int i = 0; i < regions.length; i ++) {
+			long start = (long) i << REGION_SHIFT;
+			regions[i] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(REGION_SIZE, size - start));
+		}
+		return regions;
+	}
+
+	/**
+	 * Finds the next <code>'\n'</code> at or after <code>from</code> and before <code>to</code>.
+	 *
+	 * @return the position of the line break, or <code>-1</code> if there are none in that range.
+	 */
+	static long findNewline(MappedByteBuffer[] regions, long from, long to) {
+		for (long position = from; position < to; ) {
+			MappedByteBuffer region = regions[(int) (position >>> REGION_SHIFT)];
+			long regionStart = position & ~((long) REGION_SIZE - 1);
+			int limit = (int) Math.min(region.limit(), to - regionStart);
+			for (int i = (int) (position - regionStart); i < limit; i ++) {
+				if (region.get(i) == '\n')
+					return regionStart + i;
+			}
+			position = regionStart + REGION_SIZE;
+		}
+		return -1;
+	}
+
+	static byte byteAt(MappedByteBuffer[] regions, long position) {
+		return regions[(int) (position >>> REGION_SHIFT)].get((int) (position & (REGION_SIZE - 1)));
+	}
+
+	/**
+	 * Decodes the bytes of a single line, which may cross from one mapped region into the next.
+	 */
+	static String decode(MappedByteBuffer[] regions, long start, int length, Charset charset) {
+		byte[] bytes = new byte[length];
+		int copied = 0;
+		while (copied < length) {
+			long position = start + copied;
+			ByteBuffer region = regions[(int) (position >>> REGION_SHIFT)].duplicate();
+			region.position((int) (position & (REGION_SIZE - 1)));
+			int count = Math.min(length - copied, region.remaining());
+			region.get(bytes, copied, count);
+			copied += count;
+		}
+		return new String(bytes, charset);
+	}
+
+}
@@ -0,0 +1,76 @@
+package js;
+
+import java.nio.MappedByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * JSLineSpliterator supplies the lines of a memory-mapped file to a <code>Stream</code>. When the stream is run in
+ * parallel, the file is split near the middle of each range at the next line break, so every thread decodes its own
+ * part of the file without any line being cut in two or read twice.
+ *
+ * @author Josh
+ *
+ * @version 1.0
+ */
+class JSLineSpliterator implements Spliterator<CharSequence> {
+
+	/** Ranges smaller than this are not worth handing to another thread. **/
+	private static final long MINIMUM_SPLIT = 64 * 1024;
+
+	private MappedByteBuffer[] regions;
+	private long position;
+	private long end;
+	private Charset charset;
+
+	/**
+	 * Creates a spliterator for the lines which start between <code>position</code> and <code>end</code>. Both must
+	 * be the start of a line, or the end of the file.
+	 */
+	JSLineSpliterator(MappedByteBuffer[] regions, long position, long end, Charset charset) {
+		this.regions = regions;
+		this.position = position;
+		this.end = end;
+		this.charset = charset;
+	}
+
+	public boolean tryAdvance(Consumer<? super CharSequence> action) {
+		if (position >= end)
+			return false;
+
+		long newline = JSLineReader.findNewline(regions, position, end);
+		long lineEnd = (newline < 0) ? end : newline;
+		if (lineEnd > position && JSLineReader.byteAt(regions, lineEnd - 1) == '\r')
+			lineEnd --;
+		String line = JSLineReader.decode(regions, position, (int) (lineEnd - position), charset);
+		position = (newline < 0) ? end : newline + 1;
+		action.accept(line);
+		return true;
+	}
+
+	public Spliterator<CharSequence> trySplit() {
+		if (end - position < MINIMUM_SPLIT)
+			return null;
+
+		long newline = JSLineReader.findNewline(regions, position + (end - position) / 2, end);
+		if (newline < 0 || newline + 1 >= end)
+			return null;
+
+		JSLineSpliterator prefix = new JSLineSpliterator(regions, position, newline + 1, charset);
+		position = newline + 1;
+		return prefix;
+	}
+
+	/**
+	 * Returns the number of bytes left to read, since the number of lines isn't known until they are read.
+	 */
+	public long estimateSize() {
+		return end - position;
+	}
+
+	public int characteristics() {
+		return ORDERED | NONNULL | IMMUTABLE;
+	}
+
+}
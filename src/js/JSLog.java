@@ -1,89 +1,552 @@
 package js;
 
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Calendar;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 
 /**
  * JSLog is an extension of <code>JSTextFileUtility</code> which allows a simple "log" to be kept.
  * By default, when calling the <code>append</code> method, the date and time are printed first,
  * followed by the text passed into the method. This makes the class very useful for event tracking,
- * for example.
- * 
+ * for example.<br><br>
+ *
+ * A log can also be made asynchronous with <code>setAsynchronous()</code>. <code>append</code> then only
+ * places the text in a queue and returns straight away, and a background thread writes the queued text
+ * to the file in batches. <code>flush()</code>, <code>sync()</code> and <code>close()</code> wait until
+ * everything appended before they were called has been written.<br><br>
+ *
+ * To stop a log from growing forever, it can be rolled over once it reaches a certain size
+ * (<code>setMaxFileSize()</code>) or at the start of every day or hour (<code>setRollingInterval()</code>).
+ * The log's file is renamed to an archive, such as <code>events.log.2026-10-18</code>, and a new file is started.
+ * Archives can be compressed and the oldest deleted; this happens on a background thread, so appending never
+ * waits for it.
+ *
  * @author Josh
  *
+ * @version 1.2.3
+ *
  */
 public class JSLog extends JSTextFileUtility {
-	
+
 	private boolean shouldUseDate = true;
 	private int dateFormat = LONG_FORMAT;
-	
+
 	public static final int SHORT_FORMAT = 0;
 	public static final int LONG_FORMAT = 1;
-	
+
+	/** When the queue of an asynchronous log is full, <code>append</code> waits until there is room. **/
+	public static final int BLOCK_WHEN_FULL = 0;
+	/** When the queue of an asynchronous log is full, the text passed to <code>append</code> is thrown away. **/
+	public static final int DROP_WHEN_FULL = 1;
+	/** When the queue of an asynchronous log is full, only one in every few calls to <code>append</code> (see
+	 * <code>setSampleRate()</code>) waits until there is room; the text of the others is thrown away. **/
+	public static final int SAMPLE_WHEN_FULL = 2;
+
+	/** The log is never rolled over because of the time. **/
+	public static final int ROLL_NEVER = 0;
+	/** The log is rolled over the first time it is appended to each day. **/
+	public static final int ROLL_DAILY = 1;
+	/** The log is rolled over the first time it is appended to each hour. **/
+	public static final int ROLL_HOURLY = 2;
+
+	private static final int DEFAULT_QUEUE_SIZE = 8192;
+	private static final int BATCH_SIZE = 32 * 1024;
+
+	private volatile JSLogRingBuffer queue;
+	private volatile Writer writer;
+	private int overflowPolicy = BLOCK_WHEN_FULL;
+	private int sampleRate = 10;
+	private AtomicLong overflowCount = new AtomicLong();
+	private AtomicLong droppedCount = new AtomicLong();
+	private final Object writerLock = new Object();
+
+	private long maxFileSize;
+	private int rollingInterval = ROLL_NEVER;
+	private boolean compressArchives;
+	private int maxArchives;
+	private long fileSize = -1;
+	private long periodStart;
+	private long nextRollTime;
+
+	private final JSDateFormat shortDateFormat = JSDateUtil.compile("Y-m-d ");
+	private final JSDateFormat longDateFormat = JSDateUtil.compile("Y-m-d, H:i:s ");
+
 	/**
 	 * Creates a new log which is saved to the specified filename. If the file does not already
 	 * exist, it will be created.
-	 * 
+	 *
 	 * @param filename the path to which the log should be saved
 	 */
 	public JSLog(String filename) {
 		super(filename);
 	}
-	
+
 	/**
 	 * Writes the specified text to the end of the file. If <code>shouldUseDate</code> is set to
-	 * <code>true</code>, the date will be written on the same line as the text passed in.
-	 * 
+	 * <code>true</code>, the date will be written on the same line as the text passed in.<br><br>
+	 *
+	 * If the log is asynchronous, the text is queued to be written by the log's background thread.
+	 * The date written is still the date when this method was called.
+	 *
 	 * @param textToAppend the text to write to the file
 	 */
 	public void append(String textToAppend) {
-		String text = (shouldUseDate) ? (getDate() + textToAppend) : (textToAppend);
-		appendToFileWithSeparator(text, "\n");
+		JSLogRingBuffer queue = this.queue;
+		if (queue == null) {
+			String text = (shouldUseDate) ? (getDate(System.currentTimeMillis()) + textToAppend) : (textToAppend);
+			appendToFileWithSeparator(text, "\n");
+			return;
+		}
+
+		long time = System.currentTimeMillis();
+		if (queue.offer(textToAppend, time)) {
+			entryQueued(queue);
+			return;
+		}
+
+		if (overflowPolicy == DROP_WHEN_FULL
+				|| (overflowPolicy == SAMPLE_WHEN_FULL && overflowCount.incrementAndGet() % sampleRate != 0)) {
+			droppedCount.incrementAndGet();
+			return;
+		}
+		while (! queue.offer(textToAppend, time)) {
+			if (queue.isClosed()) {
+				// the log has become synchronous, so nothing will make room in the queue
+				drain(queue);
+				StringBuilder entry = new StringBuilder();
+				appendEntry(entry, textToAppend, time);
+				appendBytes(entry.toString().getBytes(Charset.defaultCharset()));
+				return;
+			}
+			Writer writer = this.writer;
+			if (writer != null)
+				writer.wake();
+			LockSupport.parkNanos(100000);
+		}
+		entryQueued(queue);
 	}
 
 	/**
 	 * Sets whether the date should be written to the file when <code>append</code> is called.
-	 * 
+	 *
 	 * @param shouldUseDate <code>true</code> if the date should be written, otherwise <code>false</code>
 	 */
 	public void setShouldUseDate(boolean shouldUseDate) {
 		this.shouldUseDate = shouldUseDate;
 	}
-	
+
 	/**
 	 * Sets whether the time should also be written along with the date. Pass <code>SHORT_FORMAT</code>
 	 * if the time should not be written, or <code>LONG_FORMAT</code> if it should.
-	 * 
+	 *
 	 * @param dateFormat an integer representing the date format to be used
 	 */
 	public void setDateFormat(int dateFormat) {
 		this.dateFormat = dateFormat;
 	}
-	
-	private String getDate() {
-		Calendar now = Calendar.getInstance();
-		if (dateFormat == SHORT_FORMAT) {
-			return dateToString(now) + " ";
-		} else {
-			return dateToString(now) + ", " + timeToString(now) + " "; 
-		}
-	}
-	
-	private String dateToString(Calendar date) {
-		return Integer.toString(date.get(Calendar.YEAR)) + "-" + getDoubleDigits(date.get(Calendar.MONTH) + 1) +
-				"-" + getDoubleDigits(date.get(Calendar.DATE));
-	}
-	
-	private String timeToString(Calendar date) {
-		return getDoubleDigits(date.get(Calendar.HOUR_OF_DAY)) + ":" + getDoubleDigits(date.get(Calendar.MINUTE)) +
-				":" + getDoubleDigits(date.get(Calendar.SECOND));
-	}
-	
-	private String getDoubleDigits(int number) {
-		if (number < 10)
-			return "0" + number;
+
+	/**
+	 * Sets whether text passed to <code>append</code> should be written by a background thread, using a queue
+	 * of 8192 entries which waits for room when it is full.
+	 *
+	 * @param asynchronous <code>true</code> if the log should be asynchronous, otherwise <code>false</code>
+	 */
+	public void setAsynchronous(boolean asynchronous) {
+		setAsynchronous(asynchronous, DEFAULT_QUEUE_SIZE, BLOCK_WHEN_FULL);
+	}
+
+	/**
+	 * Sets whether text passed to <code>append</code> should be written by a background thread. When an
+	 * asynchronous log is made synchronous again, everything already queued is written first.<br><br>
+	 *
+	 * The background thread does not stop the program from exiting, so <code>close()</code> should be called
+	 * before exiting to make sure every entry has been written.
+	 *
+	 * @param asynchronous <code>true</code> if the log should be asynchronous, otherwise <code>false</code>
+	 * @param queueSize the number of entries which can be waiting to be written before the queue is full
+	 * @param overflowPolicy what <code>append</code> should do when the queue is full, either
+	 * 			<code>BLOCK_WHEN_FULL</code>, <code>DROP_WHEN_FULL</code> or <code>SAMPLE_WHEN_FULL</code>
+	 */
+	public void setAsynchronous(boolean asynchronous, int queueSize, int overflowPolicy) {
+		synchronized (writerLock) {
+			stopWriter();
+			this.overflowPolicy = overflowPolicy;
+			if (asynchronous) {
+				writer = new Writer(new JSLogRingBuffer(queueSize));
+				writer.start();
+				queue = writer.queue;
+			}
+		}
+	}
+
+	/**
+	 * Determines whether text passed to <code>append</code> is written by a background thread.
+	 *
+	 * @return <code>true</code> if the log is asynchronous, otherwise <code>false</code>
+	 */
+	public boolean isAsynchronous() {
+		return queue != null;
+	}
+
+	/**
+	 * Sets how many calls to <code>append</code> there are for every one which is kept when the queue of an
+	 * asynchronous log is full and the overflow policy is <code>SAMPLE_WHEN_FULL</code>.
+	 *
+	 * @param sampleRate the number of calls for every one kept, which must be at least 1
+	 */
+	public void setSampleRate(int sampleRate) {
+		this.sampleRate = Math.max(1, sampleRate);
+	}
+
+	/**
+	 * Returns the number of entries which have been thrown away because the queue of an asynchronous
+	 * log was full.
+	 *
+	 * @return the number of entries thrown away
+	 */
+	public long getDroppedCount() {
+		return droppedCount.get();
+	}
+
+	/**
+	 * Sets the largest size the log's file can reach before it is rolled over. An entry is never split between
+	 * two files, so a file may be larger than this if a single entry is.
+	 *
+	 * @param maxFileSize the largest size in bytes, or <code>0</code> if the log should never be rolled over because of its size
+	 */
+	public synchronized void setMaxFileSize(long maxFileSize) {
+		this.maxFileSize = maxFileSize;
+		fileSize = -1;
+	}
+
+	/**
+	 * Sets how often the log is rolled over. If the log's file was last changed in an earlier day or hour than the
+	 * current one, it is rolled over the next time it is appended to.
+	 *
+	 * @param rollingInterval either <code>ROLL_NEVER</code>, <code>ROLL_DAILY</code> or <code>ROLL_HOURLY</code>
+	 */
+	public synchronized void setRollingInterval(int rollingInterval) {
+		this.rollingInterval = rollingInterval;
+		fileSize = -1;
+	}
+
+	/**
+	 * Sets whether archived files should be compressed with gzip, which adds <code>.gz</code> to their names.
+	 *
+	 * @param compressArchives <code>true</code> if archives should be compressed, otherwise <code>false</code>
+	 */
+	public synchronized void setCompressArchives(boolean compressArchives) {
+		this.compressArchives = compressArchives;
+	}
+
+	/**
+	 * Sets how many archived files are kept. Each time the log is rolled over, the oldest archives beyond this
+	 * number are deleted.
+	 *
+	 * @param maxArchives the number of archives to keep, or <code>0</code> to keep them all
+	 */
+	public synchronized void setMaxArchives(int maxArchives) {
+		this.maxArchives = maxArchives;
+	}
+
+	/**
+	 * Renames the log's file to an archive straight away and starts a new, empty file. Nothing happens if the file
+	 * is empty. Entries already queued by an asynchronous log are written to the new file.
+	 */
+	public synchronized void rollOver() {
+		long now = System.currentTimeMillis();
+		if (fileSize < 0)
+			startFile(now);
+		closeAppendChannel();
+
+		File file = new File(filename);
+		if (file.length() > 0) {
+			File archive = getArchiveFile(file);
+			try {
+				Files.move(file.toPath(), archive.toPath());
+				JSLogArchiver.archive(archive, file, compressArchives, maxArchives);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		fileSize = 0;
+		startPeriod(now);
+	}
+
+	/**
+	 * Replaces the contents of the log's file with whatever the specified action writes. If the log is asynchronous,
+	 * this first waits until every entry appended before this method was called has been written by the background
+	 * thread.
+	 *
+	 * @param writeContents the action which writes the new contents of the file
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public boolean replaceContents(Consumer<? super PrintWriter> writeContents) {
+		// The writer needs this log's lock to write its entries, so it mustn't be waited for while holding the lock
+		waitForWriter();
+		synchronized (this) {
+			try {
+				return super.replaceContents(writeContents);
+			} finally {
+				fileSize = -1;
+			}
+		}
+	}
+
+	/**
+	 * Writes any text held in memory to the file. If the log is asynchronous, this first waits until
+	 * every entry appended before this method was called has been written by the background thread.
+	 *
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public boolean flush() {
+		waitForWriter();
+		return super.flush();
+	}
+
+	/**
+	 * Writes any text held in memory to the file, and waits until the operating system has saved the file
+	 * to the disk. If the log is asynchronous, this first waits until every entry appended before this method
+	 * was called has been written by the background thread.
+	 *
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public boolean sync() {
+		waitForWriter();
+		return super.sync();
+	}
+
+	/**
+	 * Writes every entry which has been appended to the file, saves it to the disk and closes it. If the log
+	 * is asynchronous, the background thread is stopped and the log becomes synchronous.
+	 */
+	public void close() {
+		synchronized (writerLock) {
+			stopWriter();
+		}
+		super.sync();
+		super.close();
+	}
+
+	/**
+	 * Rolls the log over first if the new bytes would take the file past its maximum size, or a new day or hour
+	 * has started.
+	 */
+	synchronized boolean appendBytes(byte[] bytes) {
+		if (maxFileSize > 0 || rollingInterval != ROLL_NEVER) {
+			long now = System.currentTimeMillis();
+			if (fileSize < 0)
+				startFile(now);
+			if (now >= nextRollTime || (maxFileSize > 0 && fileSize > 0 && fileSize + bytes.length > maxFileSize))
+				rollOver();
+			fileSize += bytes.length;
+		}
+		return super.appendBytes(bytes);
+	}
+
+	/* Begin private methods */
+
+	/**
+	 * Finds the size of the existing file, and which day or hour it belongs to.
+	 */
+	private void startFile(long now) {
+		File file = new File(filename);
+		fileSize = file.length();
+		startPeriod((fileSize > 0) ? file.lastModified() : now);
+	}
+
+	/**
+	 * Works out the start of the day or hour containing the specified time, and when the next one begins.
+	 */
+	private void startPeriod(long time) {
+		if (rollingInterval == ROLL_NEVER) {
+			periodStart = time;
+			nextRollTime = Long.MAX_VALUE;
+			return;
+		}
+
+		Calendar calendar = Calendar.getInstance();
+		calendar.setTimeInMillis(time);
+		if (rollingInterval == ROLL_DAILY)
+			calendar.set(Calendar.HOUR_OF_DAY, 0);
+		calendar.set(Calendar.MINUTE, 0);
+		calendar.set(Calendar.SECOND, 0);
+		calendar.set(Calendar.MILLISECOND, 0);
+		periodStart = calendar.getTimeInMillis();
+		calendar.add((rollingInterval == ROLL_DAILY) ? Calendar.DATE : Calendar.HOUR_OF_DAY, 1);
+		nextRollTime = calendar.getTimeInMillis();
+	}
+
+	/**
+	 * Chooses an unused name for an archive of the log's file, made from the day, hour or time the file was started.
+	 */
+	private File getArchiveFile(File file) {
+		String stamp;
+		if (rollingInterval == ROLL_DAILY)
+			stamp = "Y-m-d";
+		else if (rollingInterval == ROLL_HOURLY)
+			stamp = "Y-m-d-H";
 		else
-			return Integer.toString(number);
+			stamp = "Y-m-d-His";
+		String name = file.getPath() + "." + JSDateUtil.compile(stamp).format(periodStart);
+
+		File archive = new File(name);
+		for (int i = 1; archive.exists() || new File(archive.getPath() + ".gz").exists(); i ++)
+			archive = new File(name + "." + i);
+		return archive;
 	}
-	
+
+	/**
+	 * Waits until the writer has written every entry added to the queue before this method was called.
+	 */
+	private void waitForWriter() {
+		Writer writer = this.writer;
+		if (writer == null)
+			return;
+		long target = writer.queue.getAddedCount();
+		while (writer.written < target && writer.isAlive()) {
+			writer.wake();
+			LockSupport.parkNanos(100000);
+		}
+	}
+
+	private void stopWriter() {
+		Writer writer = this.writer;
+		if (writer == null)
+			return;
+		queue = null;
+		writer.stopping = true;
+		writer.wake();
+		// the queue can't be drained until the writer has finished with it
+		boolean interrupted = false;
+		while (writer.isAlive()) {
+			try {
+				writer.join();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted)
+			Thread.currentThread().interrupt();
+		this.writer = null;
+		// anything appended by a thread which found the queue just before it was removed is written here, or by
+		// that thread itself once it sees the queue is closed
+		writer.queue.close();
+		drain(writer.queue);
+	}
+
+	/**
+	 * Lets the writer know an entry has been added to the queue, or writes the entry straight away if the writer
+	 * has already stopped.
+	 */
+	private void entryQueued(JSLogRingBuffer queue) {
+		if (queue.isClosed()) {
+			drain(queue);
+			return;
+		}
+		Writer writer = this.writer;
+		if (writer != null)
+			writer.wake();
+	}
+
+	/**
+	 * Writes every entry left in the queue of a writer which has stopped.
+	 */
+	private void drain(JSLogRingBuffer queue) {
+		synchronized (queue) {
+			StringBuilder batch = new StringBuilder();
+			String text;
+			while ((text = queue.poll()) != null)
+				appendEntry(batch, text, queue.getPolledTime());
+			if (batch.length() > 0)
+				appendBytes(batch.toString().getBytes(Charset.defaultCharset()));
+		}
+	}
+
+	/**
+	 * Adds an entry to a batch of text to be written, on a new line and after its date if the log shows dates.
+	 */
+	private void appendEntry(StringBuilder batch, String text, long time) {
+		batch.append('\n');
+		if (shouldUseDate) {
+			JSDateFormat format = getDateFormat();
+			synchronized (format) {
+				format.formatTo(time, batch);
+			}
+		}
+		batch.append(text);
+	}
+
+	private JSDateFormat getDateFormat() {
+		return (dateFormat == SHORT_FORMAT) ? shortDateFormat : longDateFormat;
+	}
+
+	private String getDate(long time) {
+		JSDateFormat format = getDateFormat();
+		synchronized (format) {
+			return format.format(time);
+		}
+	}
+
+	/* Begin internal classes */
+
+	/**
+	 * The background thread of an asynchronous log, which takes entries from the queue and writes them to
+	 * the file in batches.
+	 */
+	private class Writer extends Thread {
+
+		final JSLogRingBuffer queue;
+		volatile long written;
+		volatile boolean stopping;
+		private volatile boolean sleeping;
+
+		Writer(JSLogRingBuffer queue) {
+			super("JSLog writer");
+			this.queue = queue;
+			setDaemon(true);
+		}
+
+		void wake() {
+			if (sleeping)
+				LockSupport.unpark(this);
+		}
+
+		public void run() {
+			StringBuilder batch = new StringBuilder();
+
+			while (true) {
+				String text = queue.poll();
+				if (text != null) {
+					appendEntry(batch, text, queue.getPolledTime());
+					if (batch.length() < BATCH_SIZE)
+						continue;
+				}
+
+				if (batch.length() > 0) {
+					appendBytes(batch.toString().getBytes(Charset.defaultCharset()));
+					batch.setLength(0);
+				}
+				written = queue.getRemovedCount();
+				if (text != null)
+					continue;
+
+				if (stopping && queue.getRemovedCount() == queue.getAddedCount())
+					return;
+				sleeping = true;
+				if (queue.getRemovedCount() == queue.getAddedCount())
+					LockSupport.parkNanos(10000000);
+				sleeping = false;
+			}
+		}
+
+	}
+
 }
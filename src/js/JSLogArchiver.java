@@ -0,0 +1,124 @@
+package js;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * JSLogArchiver compresses the files rolled over by {@link JSLog} and deletes the oldest of them, on a single
+ * background thread shared by every log. The log only has to rename its file before carrying on, so appending
+ * never waits for an archive to be compressed.
+ *
+ * @author Josh
+ *
+ * @version 1.0
+ */
+class JSLogArchiver {
+
+	private static ExecutorService executor;
+
+	/**
+	 * Queues an archive to be compressed (if requested), followed by the deletion of the oldest archives of the log.
+	 *
+	 * @param archive the file which the log has just been renamed to
+	 * @param logFile the log's current file, whose name starts the name of every one of its archives
+	 * @param compress whether the archive should be compressed with gzip
+	 * @param maxArchives the number of archives to keep, or <code>0</code> to keep them all
+	 */
+	static synchronized void archive(final File archive, final File logFile, final boolean compress, final int maxArchives) {
+		if (executor == null) {
+			executor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "JSLog archiver");
+					thread.setDaemon(true);
+					thread.setPriority(Thread.MIN_PRIORITY);
+					return thread;
+				}
+			});
+		}
+
+		executor.execute(new Runnable() {
+			public void run() {
+				if (compress)
+					compress(archive);
+				if (maxArchives > 0)
+					deleteOldArchives(logFile, maxArchives);
+			}
+		});
+	}
+
+	/**
+	 * Compresses a file into a file of the same name ending in <code>.gz</code>, and deletes the original.
+	 */
+	private static void compress(File file) {
+		File compressed = new File(file.getPath() + ".gz");
+		InputStream in = null;
+		OutputStream out = null;
+		try {
+			in = new FileInputStream(file);
+			out = new GZIPOutputStream(new FileOutputStream(compressed), 64 * 1024);
+			byte[] buffer = new byte[64 * 1024];
+			int read;
+			while ((read = in.read(buffer)) != -1)
+				out.write(buffer, 0, read);
+			out.close();
+			out = null;
+			in.close();
+			in = null;
+			compressed.setLastModified(file.lastModified());
+			file.delete();
+		} catch (IOException e) {
+			e.printStackTrace();
+			compressed.delete();
+		} finally {
+			close(in);
+			close(out);
+		}
+	}
+
+	/**
+	 * Deletes all but the newest archives of a log.
+	 */
+	private static void deleteOldArchives(File logFile, int maxArchives) {
+		File directory = logFile.getAbsoluteFile().getParentFile();
+		final String prefix = logFile.getName() + ".";
+		File[] archives = directory.listFiles(new FileFilter() {
+			public boolean accept(File file) {
+				return file.isFile() && file.getName().startsWith(prefix);
+			}
+		});
+		if (archives == null || archives.length <= maxArchives)
+			return;
+
+		Arrays.sort(archives, new Comparator<File>() {
+			public int compare(File a, File b) {
+				long difference = b.lastModified() - a.lastModified();
+				return (difference < 0) ? -1 : ((difference == 0) ? b.getName().compareTo(a.getName()) : 1);
+			}
+		});
+		for (int i = maxArchives; i < archives.length; i ++)
+			archives[i].delete();
+	}
+
+	private static void close(Closeable stream) {
+		if (stream == null)
+			return;
+		try {
+			stream.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+}
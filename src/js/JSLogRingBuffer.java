@@ -0,0 +1,127 @@
+package js;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * JSLogRingBuffer is a fixed-size queue of log entries which any number of threads can add to without locking,
+ * and which a single thread removes entries from. It is used by {@link JSLog} to hand entries to its writer thread.<br><br>
+ *
+ * Each slot has a sequence number which says whether it is free for the next producer or holds an entry for the
+ * consumer, so producers only compete with each other for the tail position, and never wait on the consumer.
+ *
+ * @author Josh
+ *
+ * @version 1.0.1
+ */
+class JSLogRingBuffer {
+
+	private final String[] texts;
+	private final long[] times;
+	private final AtomicLongArray sequences;
+	private final int mask;
+	private final AtomicLong tail = new AtomicLong();
+	private volatile long head;
+	private long polledTime;
+	private volatile boolean closed;
+
+	/**
+	 * Creates a new ring buffer which holds up to the specified number of entries.
+	 *
+	 * @param capacity the number of entries, which is rounded up to a power of two
+	 */
+	JSLogRingBuffer(int capacity) {
+		int size = (capacity <= 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		texts = new String[size];
+		times = new long[size];
+		sequences = new AtomicLongArray(size);
+		mask = size - 1;
+		for (int i = 0; i < size; i ++)
+			sequences.set(i, i);
+	}
+
+	/**
+	 * Adds an entry to the end of the buffer, if there is room. Safe to call from any thread.
+	 *
+	 * @param text the text of the entry
+	 * @param time the time the entry was logged, in milliseconds
+	 * @return <code>true</code> if the entry was added, or <code>false</code> if the buffer is full.
+	 */
+	boolean offer(String text, long time) {
+		long position = tail.get();
+		while (true) {
+			int index = (int) position & mask;
+			long difference = sequences.get(index) - position;
+			if (difference == 0) {
+				if (tail.compareAndSet(position, position + 1)) {
+					texts[index] = text;
+					times[index] = time;
+					sequences.set(index, position + 1);
+					return true;
+				}
+				position = tail.get();
+			} else if (difference < 0) {
+				return false;
+			} else {
+				position = tail.get();
+			}
+		}
+	}
+
+	/**
+	 * Removes the entry at the front of the buffer. Must only be called from the consumer thread, or once the buffer
+	 * is closed, by one thread at a time.
+	 *
+	 * @return the text of the entry, or <code>null</code> if no entry is ready.
+	 */
+	String poll() {
+		long position = head;
+		int index = (int) position & mask;
+		if (sequences.get(index) != position + 1)
+			return null;
+
+		String text = texts[index];
+		polledTime = times[index];
+		texts[index] = null;
+		sequences.set(index, position + texts.length);
+		head = position + 1;
+		return text;
+	}
+
+	/**
+	 * Returns the time of the entry most recently returned by <code>poll()</code>.
+	 */
+	long getPolledTime() {
+		return polledTime;
+	}
+
+	/**
+	 * Returns the total number of entries which have been added to the buffer, including any still being added.
+	 */
+	long getAddedCount() {
+		return tail.get();
+	}
+
+	/**
+	 * Returns the total number of entries which have been removed from the buffer.
+	 */
+	long getRemovedCount() {
+		return head;
+	}
+
+	/**
+	 * Marks the buffer as no longer having a consumer thread. A producer which sees this after adding an entry
+	 * must make sure the entry is removed itself, since the consumer may have finished before it was added.
+	 */
+	void close() {
+		closed = true;
+	}
+
+	/**
+	 * Determines whether <code>close()</code> has been called.
+	 */
+	boolean isClosed() {
+		return closed;
+	}
+
+}
@@ -4,7 +4,6 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Dimension;
 import java.awt.Font;
-import java.awt.FontMetrics;
 import java.awt.GradientPaint;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
@@ -26,7 +25,6 @@ import java.awt.print.Printable;
 import java.awt.print.PrinterException;
 import java.awt.print.PrinterJob;
 import java.text.DecimalFormat;
-import java.util.Vector;
 
 import javax.swing.JButton;
 import javax.swing.JDialog;
@@ -44,14 +42,14 @@ import javax.swing.JTextField;
  * 
  * @author Josh Sunshine
  * 
- * @version 1.1
+ * @version 1.3.1
  *
  */
 
 public class JSPrintPreview extends JDialog implements Printable, ActionListener {
    
    private static final long serialVersionUID = 1L;
-   private static String version = "JSPrintPreview Version 1.1.1";
+   private static String version = "JSPrintPreview Version 1.3.1";
    private PaperPanel panel = new PaperPanel();
    private JScrollPane scrollPane = new JScrollPane(this.panel);
    private JPanel buttonBar = new JPanel(new GridLayout(1, 5));
@@ -66,33 +64,15 @@ public class JSPrintPreview extends JDialog implements Printable, ActionListener
    private String currencySymbol = "";
    private Point mousePos = new Point();
    private double zoomLevel = 100.0;
-   private Vector<Object> elements = new Vector<Object>();
+   private JSDisplayList displayList = new JSDisplayList();
    private int orientation = PORTRAIT_ORIENTATION;
    private Font currentFont = new Font("Arial", Font.PLAIN, 12);
    private boolean showGrid = false;
-/*   private final int DRAW_LINE = 0;
-   private final int SET_COLOR = 1;
-   private final int SET_COLOR_RGB = 2;
-   private final int DRAW_STRING = 3;
-   private final int DRAW_RECT = 4;
-   private final int FILL_RECT = 5;
-   private final int DRAW_OVAL = 6;
-   private final int FILL_OVAL = 7;
-   private final int DRAW_IMAGE = 8;
-   private final int DRAW_IMAGE_2 = 9;
-   private final int SET_FONT = 10;
-   private final int DRAW_POLY = 11;
-   private final int FILL_POLY = 12;
-   private final int DRAW_POLY_2 = 13;
-   private final int FILL_POLY_2 = 14;
-   private final int SET_STROKE = 15;
-   private final int AFFINE_TRANSFORM = 16;
-   private final int SET_GRADUATED_FILL = 17;
-   private final int DRAW_ARC = 18;
-   private final int FILL_ARC = 19;
-   private final int SET_COLOR_ALPHA = 20;
-   private final int ALIGN_LEFT = 0;
-   private final int ALIGN_RIGHT = 1; */
+   private JSTileCache pageTiles = new JSTileCache(new JSTileCache.Painter() {
+      public boolean paint(Graphics2D g2D, double scale) {
+         return render(g2D, scale, true, showGrid);
+      }
+   }, 32L * 1024 * 1024);
    
    public JSPrintPreview() {
 	   setModal(true);
@@ -164,6 +144,26 @@ public class JSPrintPreview extends JDialog implements Printable, ActionListener
          this.showGrid = false;
    }
    
+   /**
+    * Sets how much memory may be used to keep the page drawn at the zoom levels it has been shown at, so that
+    * scrolling, zooming back and toggling the grid don't draw the whole page again. The least recently shown parts
+    * of the page are discarded first. The default is 32 megabytes.
+    * 
+    * @param megabytes the memory, in megabytes, the preview may keep. Pass <code>0</code> to draw the page every time it is shown.
+    */
+   public void setPreviewMemory(int megabytes) {
+      this.pageTiles.setMemoryBudget(Math.max(0, megabytes) * 1024L * 1024L);
+   }
+   
+   /**
+    * Returns how much memory may be used to keep the page drawn between repaints.
+    * 
+    * @return the memory, in megabytes, the preview may keep.
+    */
+   public int getPreviewMemory() {
+      return (int) (this.pageTiles.getMemoryBudget() / (1024L * 1024L));
+   }
+   
    public void actionPerformed(ActionEvent e) {
       if (e.getSource() == this.zoomInButton) {
          this.zoomLevel += 25D;
@@ -334,192 +334,86 @@ public class JSPrintPreview extends JDialog implements Printable, ActionListener
    }
    
    public void drawLine(int x1, int y1, int x2, int y2) {
-      Object[] list = new Object[5];
-      list[0] = new Integer(0);
-      list[1] = new Integer(x1);
-      list[2] = new Integer(y1);
-      list[3] = new Integer(x2);
-      list[4] = new Integer(y2);
-      this.elements.add(list);
+      this.displayList.drawLine(x1, y1, x2, y2);
    }
    
    public void setColor(Color color) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(1);
-     list[1] = color;
-     this.elements.add(list);
+      this.displayList.setColor(color);
    }
    
    public void setColor(int red, int green, int blue) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(2);
-     list[1] = new Integer(red);
-     list[2] = new Integer(green);
-     list[3] = new Integer(blue);
-     this.elements.add(list);
+      this.displayList.setColor(red, green, blue);
    }
    
    public void drawString(String text, int x, int y, int alignment) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(3);
-     list[1] = text;
-     list[2] = new Integer(x);
-     list[3] = new Integer(y);
-     list[4] = new Integer(alignment);
-     this.elements.add(list);
+      this.displayList.drawString(text, x, y, alignment);
    }
    
    public void drawRect(int x, int y, int w, int h) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(4);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(w);
-     list[4] = new Integer(h);
-     this.elements.add(list);
+      this.displayList.drawRect(x, y, w, h);
    }
    
    public void fillRect(int x, int y, int w, int h) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(5);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(w);
-     list[4] = new Integer(h);
-     this.elements.add(list);
+      this.displayList.fillRect(x, y, w, h);
    }
    
    public void drawOval(int x, int y, int w, int h) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(6);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(w);
-     list[4] = new Integer(h);
-     this.elements.add(list);
+      this.displayList.drawOval(x, y, w, h);
    }
 
    public void fillOval(int x, int y, int w, int h) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(7);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(w);
-     list[4] = new Integer(h);
-     this.elements.add(list);
+      this.displayList.fillOval(x, y, w, h);
    }
    
    public void drawImage(Image img, int x, int y, ImageObserver observer) {
-      Object[] list = new Object[5];
-      list[0] = new Integer(8);
-      list[1] = img;
-      list[2] = new Integer(x);
-      list[3] = new Integer(y);
-      list[4] = observer;
-      this.elements.add(list);
-    }
+      this.displayList.drawImage(img, x, y, observer);
+   }
 
-    public void drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
-      Object[] list = new Object[7];
-      list[0] = new Integer(9);
-      list[1] = img;
-      list[2] = new Integer(x);
-      list[3] = new Integer(y);
-      list[4] = new Integer(width);
-      list[5] = new Integer(height);
-      list[6] = observer;
-      this.elements.add(list);
-    }
+   public void drawImage(Image img, int x, int y, int width, int height, ImageObserver observer) {
+      this.displayList.drawImage(img, x, y, width, height, observer);
+   }
    
    public void setFont(Font font) {
-      Object[] list = new Object[5];
-      list[0] = new Integer(10);
-      list[1] = font;
-      this.elements.add(list);
+      this.displayList.setFont(font);
    }
    
    public void drawPoly(int[] xPoints, int[] yPoints, int nPoints) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(11);
-     list[1] = xPoints;
-     list[2] = yPoints;
-     list[3] = new Integer(nPoints);
-     this.elements.add(list);
+      this.displayList.drawPoly(xPoints, yPoints, nPoints);
    }
 
    public void fillPoly(int[] xPoints, int[] yPoints, int nPoints) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(12);
-     list[1] = xPoints;
-     list[2] = yPoints;
-     list[3] = new Integer(nPoints);
-     this.elements.add(list);
+      this.displayList.fillPoly(xPoints, yPoints, nPoints);
    }
 
    public void drawPoly(Polygon polygon) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(13);
-     list[1] = polygon;
-
-     this.elements.add(list);
+      this.displayList.drawPoly(polygon);
    }
 
-   public void fillPoly(Polygon polygon)
-   {
-     Object[] list = new Object[5];
-     list[0] = new Integer(14);
-     list[1] = polygon;
-     this.elements.add(list);
+   public void fillPoly(Polygon polygon) {
+      this.displayList.fillPoly(polygon);
    }
    
    public void setStroke(Stroke stroke) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(15);
-     list[1] = stroke;
-     this.elements.add(list);
+      this.displayList.setStroke(stroke);
    }
    
    public void setTransform(AffineTransform transform) {
-     Object[] list = new Object[5];
-     list[0] = new Integer(16);
-     list[1] = transform;
-     this.elements.add(list);
+      this.displayList.setTransform(transform);
    }
    
    public void setColor(GradientPaint gradientPaint) {
-     Object[] list = new Object[3];
-     list[0] = new Integer(17);
-     list[1] = gradientPaint;
-     this.elements.add(list);
+      this.displayList.setPaint(gradientPaint);
    }
    
    public void drawArc(int x, int y, int width, int height, int startAngleInDegrees, int arcAngleInDegrees) {
-     Object[] list = new Object[7];
-     list[0] = new Integer(18);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(width);
-     list[4] = new Integer(height);
-     list[5] = new Integer(startAngleInDegrees);
-     list[6] = new Integer(arcAngleInDegrees);
-
-     this.elements.add(list);
+      this.displayList.drawArc(x, y, width, height, startAngleInDegrees, arcAngleInDegrees);
    }
 
    public void fillArc(int x, int y, int width, int height, int startAngleInDegrees, int arcAngleInDegrees) {
-     Object[] list = new Object[7];
-     list[0] = new Integer(19);
-     list[1] = new Integer(x);
-     list[2] = new Integer(y);
-     list[3] = new Integer(width);
-     list[4] = new Integer(height);
-     list[5] = new Integer(startAngleInDegrees);
-     list[6] = new Integer(arcAngleInDegrees);
-
-     this.elements.add(list);
+      this.displayList.fillArc(x, y, width, height, startAngleInDegrees, arcAngleInDegrees);
    }
    
-   private void render(Graphics2D g2D, double scale, boolean border, boolean grid)
+   private boolean render(Graphics2D g2D, double scale, boolean border, boolean grid)
    {
      g2D.scale(scale, scale);
      if (border) {
@@ -538,80 +432,7 @@ public class JSPrintPreview extends JDialog implements Printable, ActionListener
 
      g2D.setColor(Color.BLACK);
      g2D.setFont(this.currentFont);
-     for (int i = 0; i < this.elements.size(); i++)
-     {
-       Object[] list = (Object[])this.elements.get(i);
-       switch (((Integer)list[0]).intValue()) {
-       case 0:
-         g2D.drawLine(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue());
-         break;
-       case 1:
-         g2D.setColor((Color)list[1]);
-         break;
-       case 2:
-         g2D.setColor(new Color(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue()));
-         break;
-       case 3:
-         if (((Integer)list[4]).intValue() == 0) {
-           g2D.drawString(list[1].toString(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue());
-         } else {
-           FontMetrics fontMetrics = g2D.getFontMetrics();
-           int width = fontMetrics.stringWidth(list[1].toString());
-           g2D.drawString(list[1].toString(), ((Integer)list[2]).intValue() - width, ((Integer)list[3]).intValue());
-         }
-         break;
-       case 4:
-         g2D.drawRect(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue());
-         break;
-       case 5:
-         g2D.fillRect(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue());
-         break;
-       case 6:
-         g2D.drawOval(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue());
-         break;
-       case 7:
-         g2D.fillOval(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue());
-         break;
-       case 8:
-         g2D.drawImage((Image)list[1], ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), (ImageObserver)list[4]);
-         break;
-       case 9:
-         g2D.drawImage((Image)list[1], ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue(), ((Integer)list[5]).intValue(), 
-           (ImageObserver)list[6]);
-         break;
-       case 10:
-         g2D.setFont((Font)list[1]);
-         break;
-       case 11:
-         g2D.drawPolygon((int[])list[1], (int[])list[2], ((Integer)list[3]).intValue());
-         break;
-       case 12:
-         g2D.fillPolygon((int[])list[1], (int[])list[2], ((Integer)list[3]).intValue());
-         break;
-       case 13:
-         g2D.drawPolygon((Polygon)list[1]);
-         break;
-       case 14:
-         g2D.fillPolygon((Polygon)list[1]);
-         break;
-       case 15:
-         g2D.setStroke((Stroke)list[1]);
-         break;
-       case 16:
-         g2D.setTransform((AffineTransform)list[1]);
-         break;
-       case 17:
-         g2D.setPaint((GradientPaint)list[1]);
-         break;
-       case 18:
-         g2D.drawArc(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue(), ((Integer)list[5]).intValue(), 
-           ((Integer)list[6]).intValue());
-         break;
-       case 19:
-         g2D.fillArc(((Integer)list[1]).intValue(), ((Integer)list[2]).intValue(), ((Integer)list[3]).intValue(), ((Integer)list[4]).intValue(), ((Integer)list[5]).intValue(), 
-           ((Integer)list[6]).intValue());
-       }
-     }
+     return this.displayList.replay(g2D);
    }
    
    private void drawGrid(Graphics2D g)
@@ -675,7 +496,8 @@ public class JSPrintPreview extends JDialog implements Printable, ActionListener
         super.paint(g);
         Graphics2D g2d = (Graphics2D)g;
 
-        JSPrintPreview.this.render(g2d, (JSPrintPreview.this.zoomLevel/100), true, showGrid);
+        int variant = (JSPrintPreview.this.orientation * 2) + (showGrid ? 1 : 0);
+        JSPrintPreview.this.pageTiles.paint(g2d, (JSPrintPreview.this.zoomLevel/100), variant, JSPrintPreview.this.displayList.getModificationCount(), 1920, 1080);
       }
       
       public void mouseClicked(MouseEvent e)
@@ -0,0 +1,748 @@
+package js;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.zip.CRC32;
+
+import js.exception.JSTableDataClassException;
+
+/**
+ * JSRecordStore saves records with a fixed set of typed fields to a file on disk, and finds them again by key without
+ * reading the rest of the file.<br><br>
+ *
+ * <h2>Fields:</h2>
+ *
+ * The fields of a store are named in the same way as the headings of a {@link JSTable}, with a symbol at the end of the
+ * name giving the type of the field:<br><br>
+ *
+ * <code>String fields[] = {"Code#", "Name", "Price$", "In Stock~"};</code><br><br>
+ *
+ * <ul><li># (hash) for an Integer</li>
+ * 		<li>$ (dollar sign) for a Double</li>
+ * 		<li>~ (tilde) for a Boolean</li>
+ * 		<li>No symbol for a String</li></ul>
+ *
+ * The first field is the key of each record; putting a record with the same key as an existing record replaces it.<br><br>
+ *
+ * <h2>Storage:</h2>
+ *
+ * Records are only ever added to the end of the file. Replacing or deleting a record adds a new record, or a marker
+ * saying the record was deleted, and the position of each key's latest record is kept in memory, so looking a record up
+ * reads only that record. When the file is opened, it is read once to rebuild this index. If the program crashed while
+ * a record was being written, the partly written record is discarded.<br><br>
+ *
+ * Replaced and deleted records take up space until the store is compacted, which copies the current records to a new file
+ * and swaps it into place. By default this happens automatically, on a background thread, once more of the file is unused
+ * than used. Records can still be read and written while the store is being compacted.<br><br>
+ *
+ * New records are held in memory until enough have built up, or until <code>flush()</code>, <code>sync()</code> or
+ * <code>close()</code> is called.
+ *
+ * <h3>Usage</h3>
+ *
+ * <pre>
+ * JSRecordStore products = new JSRecordStore("products.db", new String[] {"Code#", "Name", "Price$", "In Stock~"});
+ *
+ * products.put(1001, "Widget", 2.50, true);
+ * Object[] widget = products.get(1001);   // {1001, "Widget", 2.5, true}
+ * products.delete(1001);
+ * products.close();
+ * </pre>
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0.1
+ */
+public class JSRecordStore implements Closeable {
+
+	private static final int STRING_FIELD = 0;
+	private static final int INTEGER_FIELD = 1;
+	private static final int DOUBLE_FIELD = 2;
+	private static final int BOOLEAN_FIELD = 3;
+
+	private static final int MAGIC = 0x4A535253;
+	private static final int FORMAT_VERSION = 1;
+	private static final byte PUT = 1;
+	private static final byte DELETE = 2;
+	/** Each entry starts with the length of its data and a checksum of it. **/
+	private static final int ENTRY_HEADER = 8;
+	private static final int BUFFER_SIZE = 64 * 1024;
+	/** Stores are only compacted automatically once they have at least this many unused bytes. **/
+	private static final long MINIMUM_COMPACTION = 1024 * 1024;
+
+	private static ExecutorService compactor;
+
+	private String filename;
+	private Path path;
+	private String[] fieldNames;
+	private int[] fieldKinds;
+	private byte[] header;
+
+	private FileChannel channel;
+	private HashMap<Object, Entry> index = new HashMap<Object, Entry>();
+	private ByteBuffer writeBuffer = ByteBuffer.allocate(BUFFER_SIZE);
+	private long flushedTo;
+	private long writePosition;
+	private long unusedBytes;
+	private boolean autoCompaction = true;
+	private boolean compacting;
+
+	/**
+	 * Opens the record store in the specified file, creating the file if it doesn't exist. If the file can't be opened, the
+	 * error is printed and the store behaves as if it has been closed.
+	 *
+	 * @param filename the path to the file the records are stored in
+	 * @param fields the names of the fields of each record, ending in a symbol giving the field's type
+	 * @throws IllegalArgumentException if the file already holds records with different fields
+	 */
+	public JSRecordStore(String filename, String[] fields) {
+		if (fields.length == 0)
+			throw new IllegalArgumentException("A record store must have at least one field.");
+		this.filename = filename;
+		this.path = Paths.get(filename).toAbsolutePath();
+		this.fieldNames = new String[fields.length];
+		this.fieldKinds = new int[fields.length];
+		for (int i = 0; i < fields.length; i ++) {
+			String name = fields[i];
+			char suffix = (name.length() > 0) ? name.charAt(name.length() - 1) : ' ';
+			fieldKinds[i] = (suffix == '#') ? INTEGER_FIELD : (suffix == '$') ? DOUBLE_FIELD : (suffix == '~') ? BOOLEAN_FIELD : STRING_FIELD;
+			fieldNames[i] = (fieldKinds[i] == STRING_FIELD) ? name : name.substring(0, name.length() - 1);
+		}
+		this.header = createHeader();
+
+		try {
+			open();
+		} catch (IOException e) {
+			e.printStackTrace();
+			closeChannel(channel);
+			channel = null;
+		}
+	}
+
+	/**
+	 * Adds a record to the store, replacing any record with the same key. The values must be given in the same order as the
+	 * fields, and each must be of the right type for its field; any <code>Number</code> can be given for an Integer or Double
+	 * field. String fields may be <code>null</code>, but the key may not.
+	 *
+	 * @param values the value of each field of the record
+	 * @return <code>true</code> if the record was added; <code>false</code> if the values don't match the fields or the record couldn't be written.
+	 */
+	public synchronized boolean put(Object... values) {
+		if (channel == null)
+			return false;
+		Object[] record;
+		try {
+			record = checkRecord(values);
+		} catch (JSTableDataClassException e) {
+			e.printStackTrace();
+			return false;
+		}
+
+		try {
+			byte[] entry = encode(PUT, record);
+			Entry previous = index.put(record[0], new Entry(append(entry), entry.length));
+			if (previous != null)
+				unusedBytes += previous.length;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		compactIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Returns the record with the specified key.
+	 *
+	 * @param key the value of the first field of the record
+	 * @return the values of each field of the record, in the same order as the fields, or <code>null</code> if there is no such record.
+	 */
+	public synchronized Object[] get(Object key) {
+		Entry entry = (channel == null) ? null : index.get(toKey(key));
+		if (entry == null)
+			return null;
+		try {
+			return decode(read(entry));
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+
+	/**
+	 * Deletes the record with the specified key.
+	 *
+	 * @param key the value of the first field of the record
+	 * @return <code>true</code> if the record was deleted; <code>false</code> if there was no such record or it couldn't be deleted.
+	 */
+	public synchronized boolean delete(Object key) {
+		key = toKey(key);
+		Entry previous = (channel == null) ? null : index.get(key);
+		if (previous == null)
+			return false;
+		try {
+			byte[] entry = encode(DELETE, new Object[] {key});
+			append(entry);
+			index.remove(key);
+			unusedBytes += previous.length + entry.length;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+		compactIfNeeded();
+		return true;
+	}
+
+	/**
+	 * Determines whether the store holds a record with the specified key.
+	 *
+	 * @param key the value of the first field of the record
+	 * @return <code>true</code> if there is a record with the key; <code>false</code> otherwise.
+	 */
+	public synchronized boolean containsKey(Object key) {
+		return index.containsKey(toKey(key));
+	}
+
+	/**
+	 * Returns the number of records in the store.
+	 *
+	 * @return the number of records in the store
+	 */
+	public synchronized int size() {
+		return index.size();
+	}
+
+	/**
+	 * Returns the keys of every record in the store, in no particular order.
+	 *
+	 * @return a <code>Vector</code> containing the key of each record
+	 */
+	public synchronized Vector<Object> getKeys() {
+		return new Vector<Object>(index.keySet());
+	}
+
+	/**
+	 * Returns the names of the fields of each record, without the symbols giving their types.
+	 *
+	 * @return the names of the fields, in order
+	 */
+	public String[] getFieldNames() {
+		return fieldNames.clone();
+	}
+
+	/**
+	 * Returns the position of the field with the specified name in each record.
+	 *
+	 * @param name the name of the field, without the symbol giving its type
+	 * @return the index of the field, or <code>-1</code> if there is no such field.
+	 */
+	public int getFieldIndex(String name) {
+		for (int i = 0; i < fieldNames.length; i ++) {
+			if (fieldNames[i].equals(name))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Sets whether the store compacts itself on a background thread once more of the file is unused than used. This is
+	 * turned on by default.
+	 *
+	 * @param autoCompaction whether the store should be compacted automatically
+	 */
+	public synchronized void setAutoCompaction(boolean autoCompaction) {
+		this.autoCompaction = autoCompaction;
+		compactIfNeeded();
+	}
+
+	/**
+	 * Copies the current records to a new file and replaces the store's file with it, so replaced and deleted records no
+	 * longer take up space. This method returns once the store has been compacted.
+	 *
+	 * @return <code>true</code> if the store was compacted; <code>false</code> if it couldn't be, or another compaction was already running.
+	 */
+	public boolean compact() {
+		return runCompaction();
+	}
+
+	/**
+	 * Compacts the store on a background thread, as <code>compact()</code> does, and returns straight away.
+	 */
+	public void compactInBackground() {
+		synchronized (JSRecordStore.class) {
+			if (compactor == null) {
+				compactor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+					public Thread newThread(Runnable task) {
+						Thread thread = new Thread(task, "JSRecordStore compactor");
+						thread.setDaemon(true);
+						thread.setPriority(Thread.MIN_PRIORITY);
+						return thread;
+					}
+				});
+			}
+		}
+		compactor.execute(new Runnable() {
+			public void run() {
+				runCompaction();
+			}
+		});
+	}
+
+	/**
+	 * Writes any records held in memory to the file.
+	 *
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public synchronized boolean flush() {
+		if (channel == null)
+			return false;
+		try {
+			writeBuffer();
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes any records held in memory to the file, and waits until the operating system has saved the file to the disk.
+	 *
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public synchronized boolean sync() {
+		if (channel == null)
+			return false;
+		try {
+			writeBuffer();
+			channel.force(false);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Writes any records held in memory to the file and closes it. The store can't be used once it has been closed. A
+	 * compaction which is still running is abandoned.
+	 */
+	public synchronized void close() {
+		if (channel == null)
+			return;
+		flush();
+		closeChannel(channel);
+		channel = null;
+		index.clear();
+	}
+
+	/* Begin private methods */
+
+	/**
+	 * Opens the file, writing the header to it if it's new, or checking the header and reading the index from it if not.
+	 */
+	private void open() throws IOException {
+		channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		long size = channel.size();
+		if (size == 0) {
+			ByteBuffer buffer = ByteBuffer.wrap(header);
+			while (buffer.hasRemaining())
+				channel.write(buffer, buffer.position());
+			writePosition = header.length;
+		} else {
+			byte[] existing = new byte[(int) Math.min(size, header.length)];
+			ByteBuffer buffer = ByteBuffer.wrap(existing);
+			while (buffer.hasRemaining() && channel.read(buffer, buffer.position()) >= 0);
+			if (! Arrays.equals(existing, header)) {
+				closeChannel(channel);
+				channel = null;
+				throw new IllegalArgumentException("\"" + filename + "\" is not a record store with the fields " + Arrays.toString(fieldNames) + ".");
+			}
+
+			writePosition = readEntries(channel, header.length, size, index);
+			if (writePosition < size)
+				channel.truncate(writePosition);
+			unusedBytes = writePosition - header.length - usedBytes(index);
+		}
+		flushedTo = writePosition;
+	}
+
+	/**
+	 * Reads the entries between two positions in a file into an index, stopping at the first entry which is incomplete or
+	 * fails its checksum.
+	 *
+	 * @return the position just after the last complete entry.
+	 */
+	private long readEntries(FileChannel file, long from, long to, HashMap<Object, Entry> entries) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(file.position(from)), BUFFER_SIZE));
+		CRC32 checksum = new CRC32();
+		long position = from;
+		byte[] data = new byte[256];
+		while (position + ENTRY_HEADER <= to) {
+			int length;
+			int expected;
+			try {
+				length = in.readInt();
+				expected = in.readInt();
+				if (length <= 0 || position + ENTRY_HEADER + length > to)
+					break;
+				if (length > data.length)
+					data = new byte[Math.max(length, data.length * 2)];
+				in.readFully(data, 0, length);
+			} catch (EOFException e) {
+				break;
+			}
+			checksum.reset();
+			checksum.update(data, 0, length);
+			if ((int) checksum.getValue() != expected)
+				break;
+
+			ByteBuffer entry = ByteBuffer.wrap(data, 0, length);
+			byte kind = entry.get();
+			Object key = readField(entry, 0);
+			if (kind == PUT)
+				entries.put(key, new Entry(position, ENTRY_HEADER + length));
+			else
+				entries.remove(key);
+			position += ENTRY_HEADER + length;
+		}
+		return position;
+	}
+
+	/**
+	 * Compacts the store. The current records are copied to a new file without holding the store's lock, then any records
+	 * written in the meantime are copied across with the lock held, and the new file replaces the old one.
+	 */
+	private boolean runCompaction() {
+		FileChannel source;
+		HashMap<Object, Entry> snapshot;
+		long copiedTo;
+		synchronized (this) {
+			if (channel == null || compacting)
+				return false;
+			try {
+				writeBuffer();
+			} catch (IOException e) {
+				e.printStackTrace();
+				return false;
+			}
+			compacting = true;
+			source = channel;
+			snapshot = new HashMap<Object, Entry>(index);
+			copiedTo = writePosition;
+		}
+
+		Path temporary = null;
+		FileChannel copy = null;
+		try {
+			temporary = Files.createTempFile(path.getParent(), "." + path.getFileName() + ".", ".tmp");
+			copy = FileChannel.open(temporary, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			copy.write(ByteBuffer.wrap(header));
+
+			Vector<Map.Entry<Object, Entry>> live = new Vector<Map.Entry<Object, Entry>>(snapshot.entrySet());
+			live.sort(new Comparator<Map.Entry<Object, Entry>>() {
+				public int compare(Map.Entry<Object, Entry> a, Map.Entry<Object, Entry> b) {
+					return Long.compare(a.getValue().offset, b.getValue().offset);
+				}
+			});
+			HashMap<Object, Entry> compacted = new HashMap<Object, Entry>(snapshot.size() * 4 / 3 + 16);
+			long position = header.length;
+			for (Map.Entry<Object, Entry> record : live) {
+				Entry entry = record.getValue();
+				transfer(source, entry.offset, entry.length, copy);
+				compacted.put(record.getKey(), new Entry(position, entry.length));
+				position += entry.length;
+			}
+			snapshot = null;
+
+			synchronized (this) {
+				if (channel != source)
+					return false;
+				writeBuffer();
+				long tail = writePosition - copiedTo;
+				transfer(source, copiedTo, tail, copy);
+				if (readEntries(copy, position, position + tail, compacted) != position + tail)
+					throw new IOException("Records written during compaction of \"" + filename + "\" could not be copied.");
+				copy.force(true);
+				closeChannel(copy);
+				copy = null;
+
+				try {
+					Files.move(temporary, path, StandardCopyOption.ATOMIC_MOVE);
+				} catch (AtomicMoveNotSupportedException e) {
+					Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+				}
+				temporary = null;
+				closeChannel(source);
+				channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+				index = compacted;
+				writePosition = flushedTo = position + tail;
+				unusedBytes = writePosition - header.length - usedBytes(index);
+				return true;
+			}
+		} catch (ClosedChannelException e) {
+			return false;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			closeChannel(copy);
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+			synchronized (this) {
+				compacting = false;
+			}
+		}
+	}
+
+	private void compactIfNeeded() {
+		if (autoCompaction && ! compacting && channel != null && unusedBytes >= MINIMUM_COMPACTION
+				&& unusedBytes > writePosition - header.length - unusedBytes)
+			compactInBackground();
+	}
+
+	/**
+	 * Adds an entry to the end of the file, through the write buffer unless it's too big to fit.
+	 *
+	 * @return the position of the entry in the file.
+	 */
+	private long append(byte[] entry) throws IOException {
+		long offset = writePosition;
+		if (entry.length > writeBuffer.remaining())
+			writeBuffer();
+		if (entry.length > writeBuffer.capacity()) {
+			ByteBuffer buffer = ByteBuffer.wrap(entry);
+			while (buffer.hasRemaining())
+				channel.write(buffer, offset + buffer.position());
+			flushedTo += entry.length;
+		} else {
+			writeBuffer.put(entry);
+		}
+		writePosition += entry.length;
+		return offset;
+	}
+
+	private void writeBuffer() throws IOException {
+		if (writeBuffer.position() == 0)
+			return;
+		writeBuffer.flip();
+		try {
+			while (writeBuffer.hasRemaining())
+				flushedTo += channel.write(writeBuffer, flushedTo);
+		} finally {
+			writeBuffer.compact();
+		}
+	}
+
+	/**
+	 * Reads an entry, from the write buffer if it hasn't been written to the file yet.
+	 */
+	private ByteBuffer read(Entry entry) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(entry.length);
+		if (entry.offset >= flushedTo) {
+			int start = (int) (entry.offset - flushedTo);
+			buffer.put(writeBuffer.array(), start, entry.length);
+		} else {
+			while (buffer.hasRemaining()) {
+				if (channel.read(buffer, entry.offset + buffer.position()) < 0)
+					throw new EOFException("Record at " + entry.offset + " of \"" + filename + "\" is incomplete.");
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Copies part of one file to the current position of another.
+	 */
+	private static void transfer(FileChannel from, long position, long count, FileChannel to) throws IOException {
+		while (count > 0) {
+			long copied = from.transferTo(position, count, to);
+			if (copied <= 0)
+				throw new EOFException("Unexpected end of file while compacting.");
+			position += copied;
+			count -= copied;
+		}
+	}
+
+	private byte[] encode(byte kind, Object[] values) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(0);
+		out.writeInt(0);
+		out.writeByte(kind);
+		for (int i = 0; i < values.length; i ++) {
+			switch (fieldKinds[i]) {
+			case INTEGER_FIELD:
+				out.writeInt((Integer) values[i]);
+				break;
+			case DOUBLE_FIELD:
+				out.writeDouble((Double) values[i]);
+				break;
+			case BOOLEAN_FIELD:
+				out.writeBoolean((Boolean) values[i]);
+				break;
+			default:
+				if (values[i] == null) {
+					out.writeInt(-1);
+				} else {
+					byte[] text = ((String) values[i]).getBytes(StandardCharsets.UTF_8);
+					out.writeInt(text.length);
+					out.write(text);
+				}
+			}
+		}
+
+		byte[] entry = bytes.toByteArray();
+		int length = entry.length - ENTRY_HEADER;
+		CRC32 checksum = new CRC32();
+		checksum.update(entry, ENTRY_HEADER, length);
+		ByteBuffer.wrap(entry).putInt(length).putInt((int) checksum.getValue());
+		return entry;
+	}
+
+	private Object[] decode(ByteBuffer entry) {
+		entry.position(ENTRY_HEADER + 1);
+		Object[] record = new Object[fieldKinds.length];
+		for (int i = 0; i < record.length; i ++)
+			record[i] = readField(entry, i);
+		return record;
+	}
+
+	private Object readField(ByteBuffer entry, int field) {
+		switch (fieldKinds[field]) {
+		case INTEGER_FIELD:
+			return entry.getInt();
+		case DOUBLE_FIELD:
+			return entry.getDouble();
+		case BOOLEAN_FIELD:
+			return entry.get() != 0;
+		default:
+			int length = entry.getInt();
+			if (length < 0)
+				return null;
+			String text = new String(entry.array(), entry.arrayOffset() + entry.position(), length, StandardCharsets.UTF_8);
+			entry.position(entry.position() + length);
+			return text;
+		}
+	}
+
+	/**
+	 * Checks that a record has a value of the right type for each field, converting numbers to the type of their field.
+	 */
+	private Object[] checkRecord(Object[] values) throws JSTableDataClassException {
+		if (values.length != fieldKinds.length)
+			throw new JSTableDataClassException("A record of \"" + filename + "\" needs " + fieldKinds.length
+					+ " values, but " + values.length + " were given.");
+		Object[] record = new Object[values.length];
+		for (int i = 0; i < values.length; i ++) {
+			record[i] = toFieldType(values[i], i);
+			if (record[i] == null && (i == 0 || fieldKinds[i] != STRING_FIELD))
+				throw new JSTableDataClassException("Field " + i + " (\"" + fieldNames[i] + "\") of \"" + filename + "\" can't hold the value "
+						+ ((values[i] == null) ? "null" : "\"" + values[i] + "\" of class " + values[i].getClass().getSimpleName()) + ".");
+		}
+		return record;
+	}
+
+	/**
+	 * Converts a value to the type of a field, or returns <code>null</code> if it can't be.
+	 */
+	private Object toFieldType(Object value, int field) {
+		switch (fieldKinds[field]) {
+		case INTEGER_FIELD:
+			return (value instanceof Number) ? Integer.valueOf(((Number) value).intValue()) : null;
+		case DOUBLE_FIELD:
+			return (value instanceof Number) ? Double.valueOf(((Number) value).doubleValue()) : null;
+		case BOOLEAN_FIELD:
+			return (value instanceof Boolean) ? value : null;
+		default:
+			return (value instanceof String) ? value : null;
+		}
+	}
+
+	private Object toKey(Object key) {
+		return toFieldType(key, 0);
+	}
+
+	private static long usedBytes(HashMap<Object, Entry> entries) {
+		long used = 0;
+		for (Entry entry : entries.values())
+			used += entry.length;
+		return used;
+	}
+
+	/**
+	 * Creates the start of the file, which records the name and type of each field.
+	 */
+	private byte[] createHeader() {
+		try {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			out.writeInt(MAGIC);
+			out.writeByte(FORMAT_VERSION);
+			out.writeShort(fieldNames.length);
+			for (int i = 0; i < fieldNames.length; i ++) {
+				out.writeByte(fieldKinds[i]);
+				out.writeUTF(fieldNames[i]);
+			}
+			return bytes.toByteArray();
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void closeChannel(FileChannel channel) {
+		if (channel == null)
+			return;
+		try {
+			channel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/* Begin internal classes */
+
+	/**
+	 * The position and length of the latest entry for a key.
+	 */
+	private static class Entry {
+		final long offset;
+		final int length;
+
+		Entry(long offset, int length) {
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+}
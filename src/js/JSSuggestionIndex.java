@@ -0,0 +1,416 @@
+package js;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+
+/**
+ * JSSuggestionIndex finds the suggestions of a {@link JSTextField} which match the text typed into it, without comparing the
+ * text with every suggestion. Each suggestion is converted to lower case once, when the index is built, rather than on every
+ * keystroke.<br><br>
+ *
+ * For matches at the beginning of a suggestion, the suggestions are kept sorted, so those starting with the typed text are
+ * found with a binary search. For matches anywhere in a suggestion, every run of three characters (trigram) is indexed, and
+ * only the suggestions containing the least common trigram of the typed text are checked.<br><br>
+ *
+ * When the typed text extends the text of the previous search, as it does while the user carries on typing, only the
+ * previous matches are checked again.<br><br>
+ *
+ * <code>findBest()</code> ranks the matches, keeping only the best in a heap of fixed size, so ranking a search with many
+ * matches doesn't mean sorting all of them. The index is safe to search from a background thread; it builds itself from a
+ * copy of the suggestion list, so the list can be changed while a search is running.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.1
+ */
+class JSSuggestionIndex {
+
+	private static final int[] NO_MATCHES = new int[0];
+
+	private List<String> suggestions;
+	private boolean built;
+
+	private String[] texts;
+	private String[] folded;
+	/** How many times each suggestion has been chosen, by its position in <code>texts</code>. **/
+	private int[] uses;
+	/** How many times each suggestion has been chosen, by its text, which survives the index being built again. **/
+	private HashMap<String, Integer> usesByText = new HashMap<String, Integer>();
+	/** The position of each suggestion, in alphabetical order of its folded text. **/
+	private int[] sorted;
+
+	private long[] trigrams;
+	private int[] postingStart;
+	private int[] postingCount;
+	private int[] postings;
+	private int trigramMask;
+
+	private String lastText;
+	private int lastType = -1;
+	private int[] lastMatches;
+	private int lastFrom;
+	private int lastTo;
+
+	/**
+	 * Creates an index of the specified suggestions. The index is built the first time it is searched, and again after
+	 * <code>suggestionsChanged()</code> is called.
+	 *
+	 * @param suggestions the suggestions to search
+	 */
+	JSSuggestionIndex(List<String> suggestions) {
+		this.suggestions = suggestions;
+	}
+
+	/**
+	 * Tells the index that suggestions have been added, removed or reordered, so it must be built again.
+	 */
+	synchronized void suggestionsChanged() {
+		built = false;
+		lastText = null;
+		lastMatches = null;
+	}
+
+	/**
+	 * Finds the suggestions matching the specified text, ignoring case.
+	 *
+	 * @param text the text typed into the text field
+	 * @param type either <code>JSTextField.ENTIRE_WORD</code> or <code>JSTextField.BEGINNING_ONLY</code>
+	 * @return the positions of the matching suggestions in the suggestion list, in the order they appear in the list.
+	 */
+	synchronized int[] find(String text, int type) {
+		if (! built)
+			build();
+		String query = text.toLowerCase();
+		boolean narrowing = (lastText != null && type == lastType && query.startsWith(lastText));
+		if (query.length() == 0) {
+			lastText = null;
+			return NO_MATCHES;
+		}
+
+		int[] matches;
+		if (type == JSTextField.BEGINNING_ONLY) {
+			int from = narrowing ? lastFrom : 0;
+			int to = narrowing ? lastTo : sorted.length;
+			lastFrom = firstStartingWith(query, from, to);
+			lastTo = firstAfter(query, lastFrom, to);
+			matches = Arrays.copyOfRange(sorted, lastFrom, lastTo);
+			Arrays.sort(matches);
+		} else {
+			int[] candidates = narrowing ? lastMatches : null;
+			if (query.length() >= 3) {
+				int posting = rarestTrigram(query);
+				if (posting == -2)
+					candidates = NO_MATCHES;
+				else if (candidates == null || (posting >= 0 && postingCount[posting] < candidates.length))
+					candidates = Arrays.copyOfRange(postings, postingStart[posting], postingStart[posting] + postingCount[posting]);
+			}
+			matches = filterContaining(query, candidates);
+		}
+
+		lastText = query;
+		lastType = type;
+		lastMatches = matches;
+		return matches;
+	}
+
+	/**
+	 * Finds the suggestions matching the specified text, ignoring case, and returns the best of them. Suggestions starting with
+	 * the text come first, then those which have been chosen most often, then the shortest, and then those earliest in the list.
+	 *
+	 * @param text the text typed into the text field
+	 * @param type either <code>JSTextField.ENTIRE_WORD</code> or <code>JSTextField.BEGINNING_ONLY</code>
+	 * @param limit the greatest number of suggestions to return, or <code>0</code> to return every match
+	 * @param cancelled checked while ranking; once it returns <code>true</code> the search is abandoned
+	 * @return the positions of the best suggestions in <code>getSuggestions()</code>, best first, or <code>null</code> if the search was cancelled.
+	 */
+	synchronized int[] findBest(String text, int type, int limit, BooleanSupplier cancelled) {
+		int[] matches = find(text, type);
+		String query = text.toLowerCase();
+		if (limit <= 0 || limit > matches.length)
+			limit = matches.length;
+
+		int[] heap = new int[limit];
+		int size = 0;
+		for (int i = 0; i < matches.length; i ++) {
+			if ((i & 1023) == 1023 && cancelled.getAsBoolean())
+				return null;
+			int suggestion = matches[i];
+			if (size < limit) {
+				heap[size] = suggestion;
+				siftUp(heap, size ++, query);
+			} else if (limit > 0 && better(suggestion, heap[0], query)) {
+				heap[0] = suggestion;
+				siftDown(heap, size, query);
+			}
+		}
+
+		int[] best = new int[size];
+		while (size > 0) {
+			best[size - 1] = heap[0];
+			heap[0] = heap[-- size];
+			siftDown(heap, size, query);
+		}
+		return best;
+	}
+
+	/**
+	 * Returns the copy of the suggestion list which the positions returned by <code>find()</code> and <code>findBest()</code>
+	 * refer to. The copy is replaced, rather than changed, when the index is built again.
+	 *
+	 * @return the suggestions the index was built from
+	 */
+	synchronized String[] getSuggestions() {
+		if (! built)
+			build();
+		return texts;
+	}
+
+	/**
+	 * Counts a suggestion as having been chosen, so it is ranked higher by <code>findBest()</code>.
+	 *
+	 * @param suggestion the text of the suggestion which was chosen
+	 */
+	synchronized void suggestionUsed(String suggestion) {
+		Integer count = usesByText.get(suggestion);
+		usesByText.put(suggestion, (count == null) ? 1 : count + 1);
+		if (! built)
+			return;
+
+		String query = suggestion.toLowerCase();
+		for (int i = firstStartingWith(query, 0, sorted.length); i < sorted.length && folded[sorted[i]].equals(query); i ++) {
+			if (texts[sorted[i]].equals(suggestion))
+				uses[sorted[i]] ++;
+		}
+	}
+
+	/* Begin private methods */
+
+	private void build() {
+		texts = suggestions.toArray(new String[0]);
+		int count = texts.length;
+		folded = new String[count];
+		uses = new int[count];
+		Integer[] order = new Integer[count];
+		for (int i = 0; i < count; i ++) {
+			folded[i] = texts[i].toLowerCase();
+			Integer used = usesByText.get(texts[i]);
+			uses[i] = (used == null) ? 0 : used;
+			order[i] = i;
+		}
+
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return folded[a].compareTo(folded[b]);
+			}
+		});
+		sorted = new int[count];
+		for (int i = 0; i < count; i ++)
+			sorted[i] = order[i];
+
+		buildTrigrams();
+		lastText = null;
+		lastMatches = null;
+		built = true;
+	}
+
+	/**
+	 * Builds a list of the suggestions containing each trigram. The trigrams are counted first, so that every list can be
+	 * stored in one array.
+	 */
+	private void buildTrigrams() {
+		trigrams = new long[1024];
+		postingCount = new int[1024];
+		int[] lastSuggestion = new int[1024];
+		trigramMask = trigrams.length - 1;
+		int distinct = 0;
+
+		for (int i = 0; i < folded.length; i ++) {
+			String text = folded[i];
+			for (int c = 0; c + 3 <= text.length(); c ++) {
+				long key = trigram(text, c);
+				int slot = slot(key);
+				if (trigrams[slot] == 0) {
+					trigrams[slot] = key;
+					if (++ distinct * 2 > trigrams.length) {
+						lastSuggestion = growTrigrams(lastSuggestion);
+						slot = slot(key);
+					}
+				}
+				if (postingCount[slot] == 0 || lastSuggestion[slot] != i) {
+					lastSuggestion[slot] = i;
+					postingCount[slot] ++;
+				}
+			}
+		}
+
+		postingStart = new int[trigrams.length];
+		int total = 0;
+		for (int slot = 0; slot < trigrams.length; slot ++) {
+			postingStart[slot] = total;
+			total += postingCount[slot];
+		}
+		postings = new int[total];
+		int[] filled = new int[trigrams.length];
+		for (int i = 0; i < folded.length; i ++) {
+			String text = folded[i];
+			for (int c = 0; c + 3 <= text.length(); c ++) {
+				int slot = slot(trigram(text, c));
+				int start = postingStart[slot];
+				if (filled[slot] == 0 || postings[start + filled[slot] - 1] != i)
+					postings[start + filled[slot] ++] = i;
+			}
+		}
+	}
+
+	/**
+	 * Doubles the size of the trigram table, moving each trigram to its new slot.
+	 */
+	private int[] growTrigrams(int[] lastSuggestion) {
+		long[] oldTrigrams = trigrams;
+		int[] oldCounts = postingCount;
+		trigrams = new long[oldTrigrams.length * 2];
+		postingCount = new int[trigrams.length];
+		int[] grownLast = new int[trigrams.length];
+		trigramMask = trigrams.length - 1;
+		for (int old = 0; old < oldTrigrams.length; old ++) {
+			if (oldTrigrams[old] == 0)
+				continue;
+			int slot = slot(oldTrigrams[old]);
+			trigrams[slot] = oldTrigrams[old];
+			postingCount[slot] = oldCounts[old];
+			grownLast[slot] = lastSuggestion[old];
+		}
+		return grownLast;
+	}
+
+	/**
+	 * Finds the slot holding a trigram, or the empty slot where it belongs.
+	 */
+	private int slot(long trigram) {
+		int slot = (int) ((trigram * 0x9E3779B97F4A7C15L) >>> 32) & trigramMask;
+		while (trigrams[slot] != 0 && trigrams[slot] != trigram)
+			slot = (slot + 1) & trigramMask;
+		return slot;
+	}
+
+	/**
+	 * Returns the slot of the trigram of the query found in the fewest suggestions, or <code>-2</code> if a trigram of the
+	 * query isn't found in any suggestion.
+	 */
+	private int rarestTrigram(String query) {
+		int rarest = -1;
+		for (int c = 0; c + 3 <= query.length(); c ++) {
+			int slot = slot(trigram(query, c));
+			if (trigrams[slot] == 0)
+				return -2;
+			if (rarest < 0 || postingCount[slot] < postingCount[rarest])
+				rarest = slot;
+		}
+		return rarest;
+	}
+
+	/**
+	 * Packs three characters into a number, plus one so that no trigram is <code>0</code>, which marks an empty slot.
+	 */
+	private static long trigram(String text, int start) {
+		return (((long) text.charAt(start) << 32) | ((long) text.charAt(start + 1) << 16) | text.charAt(start + 2)) + 1;
+	}
+
+	/**
+	 * Determines whether one suggestion should be ranked above another.
+	 */
+	private boolean better(int a, int b, String query) {
+		boolean aStarts = folded[a].startsWith(query);
+		if (aStarts != folded[b].startsWith(query))
+			return aStarts;
+		if (uses[a] != uses[b])
+			return uses[a] > uses[b];
+		if (texts[a].length() != texts[b].length())
+			return texts[a].length() < texts[b].length();
+		return a < b;
+	}
+
+	/**
+	 * Moves a suggestion up the heap of best suggestions, which keeps the worst of them at the top.
+	 */
+	private void siftUp(int[] heap, int position, String query) {
+		int suggestion = heap[position];
+		while (position > 0) {
+			int parent = (position - 1) >>> 1;
+			if (! better(heap[parent], suggestion, query))
+				break;
+			heap[position] = heap[parent];
+			position = parent;
+		}
+		heap[position] = suggestion;
+	}
+
+	private void siftDown(int[] heap, int size, String query) {
+		if (size == 0)
+			return;
+		int suggestion = heap[0];
+		int position = 0;
+		while (true) {
+			int child = position * 2 + 1;
+			if (child >= size)
+				break;
+			if (child + 1 < size && better(heap[child], heap[child + 1], query))
+				child ++;
+			if (! better(suggestion, heap[child], query))
+				break;
+			heap[position] = heap[child];
+			position = child;
+		}
+		heap[position] = suggestion;
+	}
+
+	/**
+	 * Returns the candidates whose folded text contains the query, or checks every suggestion if there are no candidates.
+	 */
+	private int[] filterContaining(String query, int[] candidates) {
+		int count = (candidates == null) ? folded.length : candidates.length;
+		int[] matches = new int[Math.min(count, 64)];
+		int found = 0;
+		for (int i = 0; i < count; i ++) {
+			int suggestion = (candidates == null) ? i : candidates[i];
+			if (folded[suggestion].contains(query)) {
+				if (found == matches.length)
+					matches = Arrays.copyOf(matches, Math.min(count, matches.length * 2));
+				matches[found ++] = suggestion;
+			}
+		}
+		return (found == matches.length) ? matches : Arrays.copyOf(matches, found);
+	}
+
+	/**
+	 * Returns the position in the sorted suggestions of the first suggestion which comes at or after the query.
+	 */
+	private int firstStartingWith(String query, int from, int to) {
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (folded[sorted[middle]].compareTo(query) < 0)
+				from = middle + 1;
+			else
+				to = middle;
+		}
+		return from;
+	}
+
+	/**
+	 * Returns the position in the sorted suggestions of the first suggestion after those starting with the query.
+	 */
+	private int firstAfter(String query, int from, int to) {
+		while (from < to) {
+			int middle = (from + to) >>> 1;
+			if (folded[sorted[middle]].startsWith(query))
+				from = middle + 1;
+			else
+				to = middle;
+		}
+		return from;
+	}
+
+}
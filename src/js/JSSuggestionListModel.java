@@ -0,0 +1,55 @@
+package js;
+
+import javax.swing.AbstractListModel;
+
+/**
+ * JSSuggestionListModel is the read-only list model of the suggestion popup of a {@link JSTextField}. Rather than holding a
+ * copy of each matching suggestion, it holds the positions of the matches in the suggestion list, and looks the text up only
+ * when the list asks for a row it is about to paint.<br><br>
+ *
+ * Replacing the matches fires a single <code>contentsChanged</code> event, however many there are, so along with fixed cell
+ * sizes, showing tens of thousands of matches costs no more than showing a few.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0
+ */
+class JSSuggestionListModel extends AbstractListModel<String> {
+
+	private static final long serialVersionUID = 4378805826420693610L;
+	private static final int[] NO_MATCHES = new int[0];
+
+	private String[] suggestions = new String[0];
+	private int[] matches = NO_MATCHES;
+
+	/**
+	 * Replaces the rows of the list with the specified matches.
+	 *
+	 * @param suggestions the suggestions the matches refer to, which must not be changed afterwards
+	 * @param matches the position in <code>suggestions</code> of the suggestion to show in each row
+	 */
+	void setMatches(String[] suggestions, int[] matches) {
+		int oldSize = this.matches.length;
+		this.suggestions = suggestions;
+		this.matches = matches;
+		int changed = Math.max(oldSize, matches.length);
+		if (changed > 0)
+			fireContentsChanged(this, 0, changed - 1);
+	}
+
+	/**
+	 * Removes every row from the list.
+	 */
+	void clear() {
+		setMatches(suggestions, NO_MATCHES);
+	}
+
+	public int getSize() {
+		return matches.length;
+	}
+
+	public String getElementAt(int index) {
+		return suggestions[matches[index]];
+	}
+
+}
@@ -4,9 +4,19 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Iterator;
 import java.util.Vector;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.BiConsumer;
 
 import javax.swing.JCheckBox;
 import javax.swing.JDialog;
@@ -16,6 +26,8 @@ import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.JTable;
 import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.table.AbstractTableModel;
 import javax.swing.table.DefaultTableCellRenderer;
 import javax.swing.table.JTableHeader;
@@ -64,7 +76,7 @@ import js.exception.JSTableDataClassException;
  * 
  * @author Josh Sunshine
  * 
- * @version 1.2.2
+ * @version 1.5.5
  *
  */
 public class JSTable extends JPanel implements MouseListener {
@@ -83,11 +95,20 @@ public class JSTable extends JPanel implements MouseListener {
    private Vector<Boolean> centeredColumns = new Vector<Boolean>();
    private int headerAlignment;
    private boolean centerHeader;
+   private boolean sortsInBackground;
+   private JSProgressBar sortProgressBar;
+   private JSTableSorter.ParallelSort backgroundSort;
+   private JSTableFilter filter;
+   private JSTableFilter modelFilter;
+   private int filterDataVersion;
    
    public static final int LEFT = SwingConstants.LEFT;
    public static final int CENTER = SwingConstants.CENTER;
    public static final int RIGHT = SwingConstants.RIGHT;
    
+   public static final char COMMA_SEPARATED = ',';
+   public static final char TAB_SEPARATED = '\t';
+   
    /* *** Begin constructors *** */
    
    /**
@@ -155,6 +176,49 @@ public class JSTable extends JPanel implements MouseListener {
    /* *** End constructors *** */
    /* ***   Begin getters   *** */
    
+   /**
+    * Gets the value of the specified cell as a <code>boolean</code>. For a Boolean (~) column this reads the
+    * value straight from the table's storage without creating a <code>Boolean</code> object.
+    * 
+    * @param row the row of the cell to get the value from.
+    * @param column the column of the to get the value from.
+    * @return the value of the cell, or <code>false</code> if the cell does not exist.
+    * 
+    * @category getter
+    */
+   public boolean getBooleanAt(int row, int column) {
+	   if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount()))
+		   return this.tableModel.getBooleanAt(row, this.table.convertColumnIndexToModel(column));
+	   return false;
+   }
+   
+   /**
+    * Gets the value of the specified cell as a <code>double</code>. For a Double ($) or Integer (#) column this reads
+    * the value straight from the table's storage without creating a <code>Double</code> object.
+    * 
+    * @param row the row of the cell to get the value from.
+    * @param column the column of the to get the value from.
+    * @return the value of the cell, or <code>0</code> if the cell does not exist.
+    * 
+    * @category getter
+    */
+   public double getDoubleAt(int row, int column) {
+	   if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount()))
+		   return this.tableModel.getDoubleAt(row, this.table.convertColumnIndexToModel(column));
+	   return 0;
+   }
+   
+   /**
+    * Gets the filter currently deciding which rows are shown.
+    * 
+    * @return a copy of the filter in use, or <code>null</code> if every row is shown.
+    * 
+    * @category getter
+    */
+   public JSTableFilter getFilter() {
+	   return (this.filter == null) ? null : new JSTableFilter(this.filter);
+   }
+   
    /**
     * Determines the size of the font being used in the table.
     * 
@@ -169,9 +233,26 @@ public class JSTable extends JPanel implements MouseListener {
    }
    
    /**
-    * Determines how many rows the table currently has.
+    * Gets the value of the specified cell as an <code>int</code>. For an Integer (#) column this reads the value
+    * straight from the table's storage without creating an <code>Integer</code> object.
     * 
-    * @return the number of rows in the table
+    * @param row the row of the cell to get the value from.
+    * @param column the column of the to get the value from.
+    * @return the value of the cell, or <code>0</code> if the cell does not exist.
+    * 
+    * @category getter
+    */
+   public int getIntAt(int row, int column) {
+	   if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount()))
+		   return this.tableModel.getIntAt(row, this.table.convertColumnIndexToModel(column));
+	   return 0;
+   }
+   
+   /**
+    * Determines how many rows the table currently shows. If a filter is in use, this only counts the rows which
+    * match it; use <code>getUnfilteredRowCount()</code> to count every row.
+    * 
+    * @return the number of rows shown in the table
     * 
     * @category getter
     */
@@ -248,6 +329,17 @@ public class JSTable extends JPanel implements MouseListener {
 	   return this.table.getForeground();
    }
    
+   /**
+    * Determines how many rows the table has, including any rows hidden by a filter.
+    * 
+    * @return the total number of rows in the table.
+    * 
+    * @category getter
+    */
+   public int getUnfilteredRowCount() {
+	   return this.tableModel.rowCount;
+   }
+   
    /**
     * Gets the object in the specified cell.
     * 
@@ -320,6 +412,20 @@ public class JSTable extends JPanel implements MouseListener {
      }
    }
    
+   /**
+    * Sets whether the table should keep an index of the values in the specified column. An indexed column can be filtered
+    * with <code>JSTableFilter.addStartsWith()</code> or <code>JSTableFilter.addRange()</code> without checking every row, which is
+    * much faster for large tables. The index is rebuilt the next time it is needed whenever the column changes.
+    * 
+    * @param column the column to index.
+    * @param indexed whether or not the column should be indexed.
+    * 
+    * @category setter
+    */
+   public void setColumnIndexed(int column, boolean indexed) {
+	   this.tableModel.setIndexed(this.table.convertColumnIndexToModel(column), indexed);
+   }
+   
    /**
     * Sets the width in pixels of a specific column.
     * 
@@ -342,20 +448,42 @@ public class JSTable extends JPanel implements MouseListener {
     * @category setter
     */
    public void setEditable(Boolean state) {
-	   if (state == true) {
-		   for (int col = 0; col < this.tableModel.getColumnCount(); col++) {
-	            for (int row = 0; row < rows; row++) {
-	               this.tableModel.editable[row][col] = true;
-	            }
-	         }
-	   }
-	   else {
-		   for (int col = 0; col < this.tableModel.getColumnCount(); col++) {
-	            for (int row = 0; row < rows; row++) {
-	               this.tableModel.editable[row][col] = false;
-	            }
-	         }
+	   this.tableModel.setEditable(state.booleanValue());
+   }
+   
+   /**
+    * Sets the filter which decides which rows of the table are shown. Rows which don't match the filter are hidden, but
+    * are not removed from the table. Row numbers passed to other methods refer to the rows as they are shown.<br><br>
+    * 
+    * Rows added while a filter is in use are always shown, until the filter is next set.
+    * 
+    * @param filter the filter to use, or <code>null</code> to show every row.
+    * 
+    * @category setter
+    */
+   public void setFilter(JSTableFilter filter) {
+	   if (filter == null || filter.isEmpty()) {
+		   this.filter = null;
+		   this.modelFilter = null;
+		   this.tableModel.setShownRows(null);
+		   return;
 	   }
+	   
+	   // the filter is kept with its columns as storage indexes, so it can be compared with the next one after columns are moved
+	   int[] modelColumns = new int[this.tableModel.getColumnCount()];
+	   for (int i = 0; i < modelColumns.length; i ++)
+		   modelColumns[i] = this.table.convertColumnIndexToModel(i);
+	   
+	   JSTableFilter newFilter = new JSTableFilter(filter, modelColumns);
+	   boolean narrowing = (this.modelFilter != null && this.filterDataVersion == this.tableModel.dataVersion
+			   && newFilter.narrows(this.modelFilter));
+	   int[] candidates = narrowing ? this.tableModel.getShownRows() : this.tableModel.getRowOrder();
+	   
+	   int[] rows = newFilter.apply(this.tableModel, candidates);
+	   this.filter = new JSTableFilter(filter);
+	   this.modelFilter = newFilter;
+	   this.filterDataVersion = this.tableModel.dataVersion;
+	   this.tableModel.setShownRows(rows);
    }
    
    /**
@@ -446,13 +574,15 @@ public class JSTable extends JPanel implements MouseListener {
    
    /**
     * 
-    * Removes all rows in the table and adds the specified number of empty rows.
+    * Removes all rows in the table and adds the specified number of empty rows. Any filter is also removed.
     * 
     * @param count the number of empty rows to add after emptying table.
     * 
     * @category setter
     */
    public void setRowCount(int count) {
+	   this.filter = null;
+	   this.modelFilter = null;
 	   this.tableModel.setRowCount(count);
 	   rowColors.clear();
 	   for (int i = 0; i < count; i ++) {
@@ -482,6 +612,29 @@ public class JSTable extends JPanel implements MouseListener {
 	   this.table.setRowSelectionInterval(row, row);
    }
    
+   /**
+    * Sets a progress bar which shows how far through any background sort of the table is.
+    * 
+    * @param progressBar the progress bar to update during background sorts, or <code>null</code> for none.
+    * 
+    * @category setter
+    */
+   public void setSortProgressBar(JSProgressBar progressBar) {
+	   this.sortProgressBar = progressBar;
+   }
+   
+   /**
+    * Sets whether clicking a column heading should sort the table in the background using <code>sortByColumnAsync()</code>,
+    * rather than sorting it straight away. This keeps the window responsive while very large tables are sorted.
+    * 
+    * @param state whether or not header clicks should sort the table in the background.
+    * 
+    * @category setter
+    */
+   public void setSortsInBackground(boolean state) {
+	   this.sortsInBackground = state;
+   }
+   
    /**
     * Set the background color for the table rows.
     * 
@@ -601,7 +754,7 @@ public class JSTable extends JPanel implements MouseListener {
      if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount())) {
        Class<? extends Object> cell = this.table.getValueAt(row, column).getClass();
        if (cell.isInstance(new Integer(0))) {
-         this.table.setValueAt(new Integer(value), row, column);
+         this.tableModel.setIntAt(value, row, this.table.convertColumnIndexToModel(column));
          return true;
        }
        String classType = cell.toString();
@@ -631,7 +784,7 @@ public class JSTable extends JPanel implements MouseListener {
      if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount())) {
        Class<? extends Object> cell = this.table.getValueAt(row, column).getClass();
        if (cell.isInstance(new Double(0.0D))) {
-         this.table.setValueAt(new Double(value), row, column);
+         this.tableModel.setDoubleAt(value, row, this.table.convertColumnIndexToModel(column));
          return true;
        }
        String classType = cell.toString();
@@ -661,7 +814,7 @@ public class JSTable extends JPanel implements MouseListener {
      if ((column >= 0) && (column < this.tableModel.getColumnCount()) && (row >= 0) && (row < this.tableModel.getRowCount())) {
        Class<? extends Object> cell = this.table.getValueAt(row, column).getClass();
        if (cell.isInstance(new Boolean(true))) {
-         this.table.setValueAt(new Boolean(value), row, column);
+         this.tableModel.setBooleanAt(value, row, this.table.convertColumnIndexToModel(column));
          return true;
        }
        String classType = cell.toString();
@@ -690,6 +843,33 @@ public class JSTable extends JPanel implements MouseListener {
 	   this.rowColors.add(getTableForeground());
    }
    
+   /**
+    * Adds each of the specified rows to the end of the table. Each row is an array containing one value per column,
+    * in the same order as the headings. This is much faster than calling <code>addRow()</code> and <code>setValueAt()</code>
+    * for every row, as the table only needs to update itself once.
+    * 
+    * @param rows the rows to add to the table.
+    * 
+    * @category utility
+    */
+   public void appendRows(Object[][] rows) {
+	   int added = this.tableModel.appendRows(rows);
+	   this.rowColors.addAll(Collections.nCopies(added, getTableForeground()));
+   }
+   
+   /**
+    * Adds every row from the specified iterator to the end of the table. Each row is an array containing one value
+    * per column, in the same order as the headings. The table only updates itself once all of the rows have been added.
+    * 
+    * @param rows an iterator providing the rows to add to the table.
+    * 
+    * @category utility
+    */
+   public void appendRows(Iterator<Object[]> rows) {
+	   int added = this.tableModel.appendRows(rows);
+	   this.rowColors.addAll(Collections.nCopies(added, getTableForeground()));
+   }
+   
    /**
     * Deletes the specified row.
     * 
@@ -702,6 +882,59 @@ public class JSTable extends JPanel implements MouseListener {
 	   this.rowColors.remove(row);
    }
    
+   /**
+    * Writes the rows currently shown in the table to a delimited text file, such as a CSV file, in the order they are shown.
+    * Any existing contents of the file are replaced. The values are written straight from the table, so very large
+    * tables can be exported without building up the whole file in memory first.
+    * 
+    * @param filename the path to the file to write.
+    * @param delimiter the character to separate values with, usually <code>JSTable.COMMA_SEPARATED</code> or
+    * <code>JSTable.TAB_SEPARATED</code>.
+    * @param includeHeadings whether the column headings should be written as the first line of the file.
+    * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+    * 
+    * @category utility
+    */
+   public boolean exportToFile(String filename, char delimiter, boolean includeHeadings) {
+	   try {
+		   JSTableFileIO.exportRows(this.tableModel, filename, delimiter, includeHeadings);
+		   return true;
+	   } catch (IOException e) {
+		   e.printStackTrace();
+		   return false;
+	   }
+   }
+   
+   /**
+    * Reads every line of a delimited text file, such as a CSV file, and adds each one to the end of the table as a new row.
+    * Each value is converted into the type of its column, as set by the heading suffixes. The file is read a piece at a time,
+    * so even very large files can be imported without loading the whole file into memory first.<br><br>
+    * 
+    * Values may be surrounded by double quotes, in which case they can contain the delimiter or line breaks. Values which
+    * can't be converted into their column's type are left empty, or stored as <code>NaN</code> in decimal columns, and
+    * the first of them is reported.
+    * 
+    * @param filename the path to the file to read.
+    * @param delimiter the character separating values in the file, usually <code>JSTable.COMMA_SEPARATED</code> or
+    * <code>JSTable.TAB_SEPARATED</code>.
+    * @param skipFirstLine whether the first line of the file contains headings, and should not be added to the table.
+    * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+    * 
+    * @category utility
+    */
+   public boolean importFromFile(String filename, char delimiter, boolean skipFirstLine) {
+	   int before = this.tableModel.rowCount;
+	   try {
+		   JSTableFileIO.importRows(this.tableModel, filename, delimiter, skipFirstLine);
+		   return true;
+	   } catch (IOException e) {
+		   e.printStackTrace();
+		   return false;
+	   } finally {
+		   this.rowColors.addAll(Collections.nCopies(this.tableModel.rowCount - before, getTableForeground()));
+	   }
+   }
+   
    /**
     * Removes the header row from the table.
     * 
@@ -711,6 +944,24 @@ public class JSTable extends JPanel implements MouseListener {
 	   this.table.setTableHeader(null);
    }
    
+   /**
+    * Only shows the rows of the table containing the specified text in at least one column, ignoring case.
+    * Each time the search text is extended, only the rows which are already shown need to be checked again.
+    * 
+    * @param text the text to search for, or an empty string to show every row.
+    * 
+    * @category utility
+    */
+   public void search(String text) {
+	   if (text == null || text.length() == 0) {
+		   setFilter(null);
+	   } else {
+		   JSTableFilter search = new JSTableFilter();
+		   search.addSearch(text);
+		   setFilter(search);
+	   }
+   }
+   
    /**
     * Sorts the table into ascending order by the values in the specified column.
     * If this method is called on the same column twice consecutively, the sort order is changed to descending.
@@ -720,150 +971,122 @@ public class JSTable extends JPanel implements MouseListener {
     * @category utility
     */
    public void sortByColumn(int column) {
-	   for (int i = 0; i < this.tableModel.getColumnCount(); i ++) {
-		   TableColumnModel tcm = this.table.getColumnModel();
-	       TableColumn tc = tcm.getColumn(i);
-	       String heading = tc.getHeaderValue().toString();
-	       if (heading.contains("  ^") || heading.contains("  v")) {
-	    	   heading = heading.substring(0, heading.length()-3);
-	       }
-	       setColumnHeading(i, heading);
-	   }
+	   sortByColumn(column, !(this.currentSortedColumn == column && ascending));
+   }
+   
+   /**
+    * Sorts the table by the values in the specified column. Integer and Double columns are sorted numerically, and
+    * columns containing only times (<code>HH:MM:SS</code>) or only dates (<code>DD/MM/YY</code>) are sorted chronologically.
+    * Any other column is sorted alphabetically, ignoring case. Rows with equal values stay in the order they were in before.
+    * 
+    * @param column the column to sort the table by
+    * @param ascending <code>true</code> to sort into ascending order, or <code>false</code> for descending order
+    * 
+    * @category utility
+    */
+   public void sortByColumn(int column, boolean ascending) {
+	   sortByColumns(new int[] {column}, new boolean[] {ascending});
+   }
+   
+   /**
+    * Sorts the table by the values in several columns. The table is sorted by the first column, then any rows with
+    * equal values in that column are sorted by the second column, and so on.
+    * 
+    * @param columns the columns to sort the table by, most significant first
+    * @param ascending whether each column should be sorted in ascending order
+    * 
+    * @category utility
+    */
+   public void sortByColumns(int[] columns, boolean[] ascending) {
+	   if (columns.length == 0 || columns.length != ascending.length)
+		   return;
 	   
-	   TableColumnModel tcm = this.table.getColumnModel();
-       TableColumn tc = tcm.getColumn(column);
-       String heading = tc.getHeaderValue().toString();
-       heading += "  ^";
-       
-	   if (this.currentSortedColumn == column && ascending) {
-			   ascending = false;
-			   tcm = this.table.getColumnModel();
-		       tc = tcm.getColumn(column);
-		       heading = tc.getHeaderValue().toString();
-		       heading += "  ^";
-		   
-	   }
-	   else if (this.currentSortedColumn == column && !ascending) {
-			   ascending = true;
-			   tcm = this.table.getColumnModel();
-		       tc = tcm.getColumn(column);
-		       heading = tc.getHeaderValue().toString();
-		       heading += "  v";
-	   }
-	   else {
-		   ascending = true;
-	   }
-       
-       setColumnHeading(column, heading);
-       
-       this.currentSortedColumn = column;
+	   cancelBackgroundSort();
 	   
-	   if (!(this.tableModel.getColumnClass(column).isInstance(new Double(0.0D)) || this.tableModel.getColumnClass(column).isInstance(new Integer(0)) || 
-			   (getStringValueAt(0, column).length() == 8 && getStringValueAt(0, column).substring(2, 3).equals(":") && getStringValueAt(0, column).substring(5, 6).equals(":")) ||
-			   (getStringValueAt(0, column).length() == 8 && getStringValueAt(0, column).substring(2, 3).equals("/") && getStringValueAt(0, column).substring(5, 6).equals("/")))) {
-		   boolean finished;
-		   do {
-			   finished = true;
-			   for (int i = 0; i < this.tableModel.getRowCount()-1; i ++) {
-				   if (ascending) {
-					   if (getValueAt(i, column).toString().compareToIgnoreCase(getValueAt(i+1, column).toString()) > 0) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-				   else {
-					   if (getValueAt(i, column).toString().compareToIgnoreCase(getValueAt(i+1, column).toString()) < 0) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-			   }
-		   } while (!finished);
-	   }
-	   else if (this.tableModel.getColumnClass(column).isInstance(new Double(0.0D)) || this.tableModel.getColumnClass(column).isInstance(new Integer(0))) {
-		   boolean finished;
-		   do {
-			   finished = true;
-			   for (int i = 0; i < this.tableModel.getRowCount()-1; i ++) {
-				   if (ascending) {
-					   if (Double.parseDouble(getValueAt(i, column).toString()) > Double.parseDouble(getValueAt(i+1, column).toString())) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-				   else {
-					   if (Double.parseDouble(getValueAt(i, column).toString()) < Double.parseDouble(getValueAt(i+1, column).toString())) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-			   }
-		   } while (!finished);
+	   int[] modelColumns = new int[columns.length];
+	   for (int i = 0; i < columns.length; i ++)
+		   modelColumns[i] = this.table.convertColumnIndexToModel(columns[i]);
+	   
+	   int[] order = this.tableModel.getRowOrder();
+	   JSTableSorter.sort(this.tableModel, order, modelColumns, ascending);
+	   this.tableModel.setRowOrder(order);
+	   
+	   showSortIndicator(columns[0], ascending[0]);
+   }
+   
+   /**
+    * Sorts the table by the values in the specified column on background threads, leaving the window free to repaint.
+    * The values in the column are copied before the sort starts and the sorted order is shown once the sort has finished.
+    * Any progress bar set with <code>setSortProgressBar()</code> is updated while the sort runs.<br><br>
+    * 
+    * Starting another sort, or adding or deleting rows before the sort has finished, cancels it.
+    * 
+    * @param column the column to sort the table by
+    * @param ascending <code>true</code> to sort into ascending order, or <code>false</code> for descending order
+    * @return a future which completes on the event dispatch thread once the sorted order is being displayed. 
+    * Cancelling the future cancels the sort.
+    * 
+    * @category utility
+    */
+   public CompletableFuture<Void> sortByColumnAsync(final int column, final boolean ascending) {
+	   cancelBackgroundSort();
+	   
+	   final int[] order = this.tableModel.getRowOrder();
+	   final int rowVersion = this.tableModel.rowVersion;
+	   // only the column's storage is copied here; the sort keys are worked out on the background thread
+	   final JSTableSorter.ColumnCopy values = new JSTableSorter.ColumnCopy(this.tableModel, this.table.convertColumnIndexToModel(column));
+	   final JSTableSorter.ParallelSort sort = new JSTableSorter.ParallelSort(order);
+	   final CompletableFuture<Void> result = new CompletableFuture<Void>();
+	   this.backgroundSort = sort;
+	   
+	   final JSProgressBar progressBar = this.sortProgressBar;
+	   final Timer progressTimer = new Timer(100, new ActionListener() {
+		   public void actionPerformed(ActionEvent e) {
+			   progressBar.setValue((int) (sort.getProgress() * progressBar.getMax()));
+		   }
+	   });
+	   if (progressBar != null) {
+		   progressBar.setValue(0);
+		   progressTimer.start();
 	   }
-	   else {
-		   boolean finished;
-		   do {
-			   finished = true;
-			   for (int i = 0; i < this.tableModel.getRowCount()-1; i ++) {
-				   if (ascending) {
-					   if (getStringValueAt(i, column).substring(6, 8).compareTo(getStringValueAt(i+1, column).substring(6, 8)) > 0) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-				   else {
-					   if (getStringValueAt(i, column).substring(6, 8).compareTo(getStringValueAt(i+1, column).substring(6, 8)) < 0) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-			   }
-		   } while (!finished);
-		   
-		 
-		   do {
-			   finished = true;
-			   for (int i = 0; i < this.tableModel.getRowCount()-1; i ++) {
-				   if (ascending) {
-					   if (getStringValueAt(i, column).substring(3, 5).compareTo(getStringValueAt(i+1, column).substring(3, 5)) > 0 
-							   && getStringValueAt(i, column).substring(6, 8).equals(getStringValueAt(i+1, column).substring(6, 8))) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-				   else {
-					   if (getStringValueAt(i, column).substring(3, 5).compareTo(getStringValueAt(i+1, column).substring(3, 5)) < 0 
-							   && getStringValueAt(i, column).substring(6, 8).equals(getStringValueAt(i+1, column).substring(6, 8))) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-			   }
-		   } while (!finished);
-		   
-		   
-		   do {
-			   finished = true;
-			   for (int i = 0; i < this.tableModel.getRowCount()-1; i ++) {
-				   if (ascending) {
-					   if (getStringValueAt(i, column).substring(0, 2).compareTo(getStringValueAt(i+1, column).substring(0, 2)) > 0 
-							   && getStringValueAt(i, column).substring(6, 8).equals(getStringValueAt(i+1, column).substring(6, 8))
-							   && getStringValueAt(i, column).substring(3, 5).equals(getStringValueAt(i+1, column).substring(3, 5))) {
-						   swapRows(i, i+1);
-						   finished = false;
-					   }
-				   }
-				   else {
-					   if (getStringValueAt(i, column).substring(0, 2).compareTo(getStringValueAt(i+1, column).substring(0, 2)) < 0 
-							   && getStringValueAt(i, column).substring(6, 8).equals(getStringValueAt(i+1, column).substring(6, 8))
-							   && getStringValueAt(i, column).substring(3, 5).equals(getStringValueAt(i+1, column).substring(3, 5))) {
-						   swapRows(i, i+1);
-						   finished = false;
+	   
+	   CompletableFuture.runAsync(new Runnable() {
+		   public void run() {
+			   if (! sort.isCancelled())
+				   sort.run(ForkJoinPool.commonPool(), values.comparator(ascending));
+		   }
+	   }).whenComplete(new BiConsumer<Void, Throwable>() {
+		   public void accept(Void ignored, final Throwable error) {
+			   SwingUtilities.invokeLater(new Runnable() {
+				   public void run() {
+					   progressTimer.stop();
+					   if (backgroundSort == sort)
+						   backgroundSort = null;
+					   
+					   if (error != null && !sort.isCancelled()) {
+						   result.completeExceptionally(error);
+					   } else if (sort.isCancelled() || tableModel.rowVersion != rowVersion) {
+						   result.cancel(false);
+					   } else {
+						   tableModel.setRowOrder(order);
+						   showSortIndicator(column, ascending);
+						   if (progressBar != null)
+							   progressBar.setValue(progressBar.getMax());
+						   result.complete(null);
 					   }
 				   }
-			   }
-		   } while (!finished);
-	   }
+			   });
+		   }
+	   });
+	   
+	   result.whenComplete(new BiConsumer<Void, Throwable>() {
+		   public void accept(Void ignored, Throwable error) {
+			   if (result.isCancelled())
+				   sort.cancel();
+		   }
+	   });
+	   
+	   return result;
    }
    
    /* ***    End utility methods   *** */
@@ -977,14 +1200,33 @@ public class JSTable extends JPanel implements MouseListener {
    /**
     * @category internal
     */
-   private void swapRows(int r1, int r2) {
-	   for (int col = 0; col < this.tableModel.getColumnCount(); col ++) {
-		   Object o = getValueAt(r1, col);
-		   setObjectAt(getValueAt(r2, col), r1, col);
-		   setObjectAt(o, r2, col);
+   private void cancelBackgroundSort() {
+	   if (this.backgroundSort != null) {
+		   this.backgroundSort.cancel();
+		   this.backgroundSort = null;
 	   }
    }
    
+   /**
+    * @category internal
+    */
+   private void showSortIndicator(int column, boolean ascending) {
+	   TableColumnModel tcm = this.table.getColumnModel();
+	   for (int i = 0; i < this.tableModel.getColumnCount(); i ++) {
+	       String heading = tcm.getColumn(i).getHeaderValue().toString();
+	       if (heading.endsWith("  ^") || heading.endsWith("  v")) {
+	    	   heading = heading.substring(0, heading.length()-3);
+	       }
+	       if (i == column)
+	    	   heading += ascending ? "  ^" : "  v";
+	       setColumnHeading(i, heading);
+	   }
+	   
+	   this.currentSortedColumn = column;
+	   this.ascending = ascending;
+	   this.table.getTableHeader().repaint();
+   }
+   
    /**
     * @category internal
     */
@@ -1009,7 +1251,12 @@ public class JSTable extends JPanel implements MouseListener {
       } else {
     	  TableColumnModel columnModel = this.table.getColumnModel();
     	  int index = columnModel.getColumnIndexAtX(e.getX());
-    	  sortByColumn(index);
+    	  if (index < 0)
+    		  return;
+    	  if (this.sortsInBackground)
+    		  sortByColumnAsync(index, !(this.currentSortedColumn == index && this.ascending));
+    	  else
+    		  sortByColumn(index);
       }
    }
    
@@ -1061,142 +1308,338 @@ public class JSTable extends JPanel implements MouseListener {
 		}
    }
    
+   /**
+    * The model behind the table. Cell values are stored column by column in primitive arrays chosen from the
+    * heading suffixes (<code>double[]</code> for $, <code>int[]</code> for #, a <code>BitSet</code> for ~ and
+    * <code>String[]</code> otherwise), so filling a numeric column does not allocate an object per cell.
+    * 
+    * @category internal
+    */
    class TableModel extends AbstractTableModel {
 	  private static final long serialVersionUID = 1L;
-	  Object[][] data;
+	  
+	  static final int STRING_COLUMN = 0;
+	  static final int INTEGER_COLUMN = 1;
+	  static final int DOUBLE_COLUMN = 2;
+	  static final int BOOLEAN_COLUMN = 3;
+	  static final int OBJECT_COLUMN = 4;
+	  
       String[] columnNames;
-      Object[] columnTypes;
-      boolean[][] editable;
+      Class<?>[] columnClasses;
+      int[] columnKinds;
+      Object[] columnData;
+      boolean[] columnEditable;
+      BitSet[] editableExceptions;
+      int rowCount;
+      int capacity;
+      int[] viewRows;
+      int[] filteredRows;
+      int filteredCount;
+      int rowVersion;
+      int dataVersion;
+      boolean[] indexedColumns;
+      JSTableIndex[] indexes;
       
       TableModel(String[] columns, int rows) {
          int columnCount = columns.length;
          this.columnNames = new String[columnCount];
-         this.columnTypes = new Object[columnCount];
-         this.editable = new boolean[rows][columnCount];
+         this.columnClasses = new Class<?>[columnCount];
+         this.columnKinds = new int[columnCount];
+         this.columnData = new Object[columnCount];
+         this.columnEditable = new boolean[columnCount];
+         this.editableExceptions = new BitSet[columnCount];
+         this.indexedColumns = new boolean[columnCount];
+         this.indexes = new JSTableIndex[columnCount];
+         this.rowCount = rows;
+         this.capacity = rows;
          
          for (int col = 0; col < columnCount; col++) {
-            for (int row = 0; row < rows; row++) {
-               this.editable[row][col] = true;
+            String name = columns[col];
+            char suffix = (name.length() > 0) ? name.charAt(name.length() - 1) : ' ';
+            
+            if (suffix == '$') {
+               this.columnNames[col] = name.substring(0, name.length() - 1);
+               this.columnKinds[col] = DOUBLE_COLUMN;
+               this.columnClasses[col] = Double.class;
             }
-         }
-         
-         for (int col = 0; col < columnCount; col++) {
-            this.columnNames[col] = columns[col];
-         }
-         
-         this.data = new Object[rows][columnCount];
-         for (int col = 0; col < columnCount; col++) {
-            if (this.columnNames[col].charAt(this.columnNames[col].length() - 1) == '$') {
-               this.columnNames[col] = this.columnNames[col].substring(0, this.columnNames[col].length() - 1);
-               for (int row = 0; row < rows; row++) {
-                 this.data[row][col] = new Double(0.0D);
-               }
-               this.columnTypes[col] = new Double(0.0D);
+            else if (suffix == '#') {
+               this.columnNames[col] = name.substring(0, name.length() - 1);
+               this.columnKinds[col] = INTEGER_COLUMN;
+               this.columnClasses[col] = Integer.class;
             }
-            else if (this.columnNames[col].charAt(this.columnNames[col].length() - 1) == '#') {
-               this.columnNames[col] = this.columnNames[col].substring(0, this.columnNames[col].length() - 1);
-               for (int row = 0; row < rows; row++) {
-                 this.data[row][col] = new Integer(0);
-               }
-               this.columnTypes[col] = new Integer(0);
-             }
-            else if (this.columnNames[col].charAt(this.columnNames[col].length() - 1) == '~') {
-               this.columnNames[col] = this.columnNames[col].substring(0, this.columnNames[col].length() - 1);
-               for (int row = 0; row < rows; row++) {
-                 this.data[row][col] = new Boolean(false);
-               }
-               this.columnTypes[col] = new Boolean(false);
-             }
-             else {
-               for (int row = 0; row < rows; row++) {
-                 this.data[row][col] = new String("");
-               }
-               this.columnTypes[col] = new String();
-             }
-         } 
-         
-      }
-      
-      private Object getColumnType(int i)
-      {
-        if (this.columnTypes[i].getClass().isInstance(new Boolean(false))) {
-          return new Boolean(false);
-        }
-        if (this.columnTypes[i].getClass().isInstance(new Double(0.0D))) {
-          return new Double(0.0D);
-        }
-        if (this.columnTypes[i].getClass().isInstance(new Integer(0))) {
-           return new Integer(0);
+            else if (suffix == '~') {
+               this.columnNames[col] = name.substring(0, name.length() - 1);
+               this.columnKinds[col] = BOOLEAN_COLUMN;
+               this.columnClasses[col] = Boolean.class;
+            }
+            else {
+               this.columnNames[col] = name;
+               this.columnKinds[col] = STRING_COLUMN;
+               this.columnClasses[col] = String.class;
+            }
+            this.columnData[col] = newColumn(this.columnKinds[col], rows);
+            this.columnEditable[col] = true;
          }
-        return new String("");
       }
 
       TableModel(int columnCount, int rows)
       {
         this.columnNames = new String[columnCount];
-        this.editable = new boolean[rows][columnCount];
+        this.columnClasses = new Class<?>[columnCount];
+        this.columnKinds = new int[columnCount];
+        this.columnData = new Object[columnCount];
+        this.columnEditable = new boolean[columnCount];
+        this.editableExceptions = new BitSet[columnCount];
+        this.indexedColumns = new boolean[columnCount];
+        this.indexes = new JSTableIndex[columnCount];
+        this.rowCount = rows;
+        this.capacity = rows;
 
-        for (int j = 0; j < columnCount; j++) {
-          this.columnNames[j] = new String(" ");
-          for (int i = 0; i < rows; i++) {
-            this.editable[i][j] = true;
-          }
-        }
-
-        this.data = new Object[rows][columnCount];
-
-        for (int i = 0; i < columnCount; i++)
-        {
-          for (int j = 0; j < rows; j++)
-            this.data[j][i] = new String("");
+        for (int col = 0; col < columnCount; col++) {
+          this.columnNames[col] = " ";
+          this.columnKinds[col] = STRING_COLUMN;
+          this.columnClasses[col] = String.class;
+          this.columnData[col] = newColumn(STRING_COLUMN, rows);
+          this.columnEditable[col] = true;
         }
       }
+      
+      private Object newColumn(int kind, int length) {
+    	  switch (kind) {
+    	  case DOUBLE_COLUMN:
+    		  return new double[length];
+    	  case INTEGER_COLUMN:
+    		  return new int[length];
+    	  case BOOLEAN_COLUMN:
+    		  return new BitSet(length);
+    	  case STRING_COLUMN:
+    		  String[] strings = new String[length];
+    		  Arrays.fill(strings, "");
+    		  return strings;
+    	  default:
+    		  return new Object[length];
+    	  }
+      }
+      
+      /**
+       * Makes sure every column has room for at least the specified number of rows. When the columns do need to
+       * grow, their capacity is at least doubled, so adding rows one at a time only copies the data occasionally.
+       */
+      private void ensureCapacity(int rows) {
+    	  if (rows > this.capacity)
+    		  resizeColumns(Math.max(rows, Math.max(16, this.capacity * 2)));
+      }
+      
+      /**
+       * Copies every array-backed column into a new array of the specified length. Any new slots are
+       * filled with the empty value for their column.
+       */
+      private void resizeColumns(int length) {
+    	  for (int col = 0; col < getColumnCount(); col++) {
+    		  switch (this.columnKinds[col]) {
+    		  case DOUBLE_COLUMN:
+    			  this.columnData[col] = Arrays.copyOf((double[]) this.columnData[col], length);
+    			  break;
+    		  case INTEGER_COLUMN:
+    			  this.columnData[col] = Arrays.copyOf((int[]) this.columnData[col], length);
+    			  break;
+    		  case STRING_COLUMN:
+    			  String[] strings = Arrays.copyOf((String[]) this.columnData[col], length);
+    			  for (int row = this.capacity; row < length; row++)
+    				  strings[row] = "";
+    			  this.columnData[col] = strings;
+    			  break;
+    		  case OBJECT_COLUMN:
+    			  this.columnData[col] = Arrays.copyOf((Object[]) this.columnData[col], length);
+    			  break;
+    		  }
+    	  }
+    	  if (this.viewRows != null)
+    		  this.viewRows = Arrays.copyOf(this.viewRows, length);
+    	  if (this.filteredRows != null)
+    		  this.filteredRows = Arrays.copyOf(this.filteredRows, length);
+    	  this.capacity = length;
+      }
+      
+      /**
+       * Resets every cell in the specified row to the empty value for its column.
+       */
+      private void clearRow(int row) {
+    	  for (int col = 0; col < getColumnCount(); col++) {
+    		  Object column = this.columnData[col];
+    		  switch (this.columnKinds[col]) {
+    		  case DOUBLE_COLUMN:
+    			  ((double[]) column)[row] = 0;
+    			  break;
+    		  case INTEGER_COLUMN:
+    			  ((int[]) column)[row] = 0;
+    			  break;
+    		  case BOOLEAN_COLUMN:
+    			  ((BitSet) column).clear(row);
+    			  break;
+    		  case STRING_COLUMN:
+    			  ((String[]) column)[row] = "";
+    			  break;
+    		  default:
+    			  ((Object[]) column)[row] = null;
+    		  }
+    	  }
+      }
 
       public void addRow()
       {
-        Object[][] dataTemp = new Object[getRowCount() + 1][getColumnCount()];
-        boolean[][] editableCopy = new boolean[getRowCount() + 1][getColumnCount()];
-
-        for (int i = 0; i < getColumnCount(); i++) {
-          for (int j = 0; j < getRowCount(); j++) {
-            dataTemp[j][i] = this.data[j][i];
-            editableCopy[j][i] = this.editable[j][i];
-          }
-        }
+        ensureCapacity(this.rowCount + 1);
+        int row = getRowCount();
+        showNewRow(this.rowCount);
+        this.rowCount++;
+        rowsChanged();
+        fireTableRowsInserted(row, row);
+      }
+      
+      /**
+       * Adds the specified rows to the end of the table, firing a single event once they have all been added.
+       * Any cells missing from a row, or given as <code>null</code>, are left empty.
+       * 
+       * @return the number of rows added.
+       */
+      public int appendRows(Object[][] rows) {
+    	  return appendRows(Arrays.asList(rows).iterator());
+      }
+      
+      /**
+       * Adds every row from the specified iterator to the end of the table, firing a single event once they
+       * have all been added. Any cells missing from a row, or given as <code>null</code>, are left empty.
+       * 
+       * @return the number of rows added.
+       */
+      public int appendRows(Iterator<Object[]> rows) {
+    	  int first = this.rowCount;
+    	  int firstShown = getRowCount();
+    	  while (rows.hasNext()) {
+    		  Object[] values = rows.next();
+    		  ensureCapacity(this.rowCount + 1);
+    		  int cells = Math.min(values.length, getColumnCount());
+    		  for (int col = 0; col < cells; col++) {
+    			  if (values[col] != null)
+    				  storeValue(values[col], this.rowCount, col);
+    		  }
+    		  showNewRow(this.rowCount);
+    		  this.rowCount++;
+    	  }
+    	  if (this.rowCount > first) {
+    		  rowsChanged();
+    		  fireTableRowsInserted(firstShown, getRowCount() - 1);
+    	  }
+    	  return this.rowCount - first;
+      }
 
-        for (int i = 0; i < getColumnCount(); i++) {
-          dataTemp[getRowCount()][i] = getColumnType(i);
-          if (getRowCount() > 0) {
-            editableCopy[getRowCount()][i] = this.editable[(getRowCount() - 1)][i];
-          }
-        }
-        this.editable = editableCopy;
-        this.data = dataTemp;
-        fireTableDataChanged();
+      /**
+       * Makes room for a new, empty row at the end of the storage and returns its storage index. The row is not part of
+       * the table until <code>commitRow()</code> is called, and no event is fired until <code>rowsAppended()</code> is called.
+       */
+      int reserveRow() {
+    	  ensureCapacity(this.rowCount + 1);
+    	  // the slot may still hold a row which was reserved but never committed
+    	  clearRow(this.rowCount);
+    	  return this.rowCount;
+      }
+      
+      /**
+       * Adds the row last returned by <code>reserveRow()</code> to the table.
+       */
+      void commitRow() {
+    	  showNewRow(this.rowCount);
+    	  this.rowCount++;
+      }
+      
+      /**
+       * Fires a single event for every row committed since the table showed the specified number of rows.
+       */
+      void rowsAppended(int firstShown) {
+    	  if (getRowCount() > firstShown) {
+    		  rowsChanged();
+    		  fireTableRowsInserted(firstShown, getRowCount() - 1);
+    	  }
       }
 
       public void deleteRow(int row)
       {
-        if (row < getRowCount()) {
-          Object[][] dataTemp = new Object[getRowCount() - 1][getColumnCount()];
-          boolean[][] editableCopy = new boolean[getRowCount() + 1][getColumnCount()];
-
-          for (int i = 0; i < getColumnCount(); i++) {
-            int r = 0;
-            for (int j = 0; j < getRowCount(); j++) {
-              if (row != j) {
-                dataTemp[r][i] = this.data[j][i];
-                editableCopy[r][i] = this.editable[j][i];
-                r++;
-              }
-            }
+        if (row >= 0 && row < getRowCount()) {
+          int modelRow = modelRow(row);
+          int moved = this.rowCount - modelRow - 1;
+          for (int col = 0; col < getColumnCount(); col++) {
+            Object column = this.columnData[col];
+            if (this.columnKinds[col] == BOOLEAN_COLUMN)
+              removeBit((BitSet) column, modelRow, this.rowCount);
+            else
+              System.arraycopy(column, modelRow + 1, column, modelRow, moved);
+            if (this.editableExceptions[col] != null)
+              removeBit(this.editableExceptions[col], modelRow, this.rowCount);
           }
-
-          this.editable = editableCopy;
-          this.data = dataTemp;
-          fireTableDataChanged();
+          if (this.viewRows != null)
+            removeRowIndex(this.viewRows, this.rowCount, modelRow);
+          if (this.filteredRows != null) {
+            removeRowIndex(this.filteredRows, this.filteredCount, modelRow);
+            this.filteredCount--;
+          }
+          this.rowCount--;
+          rowsChanged();
+          clearRow(this.rowCount);
+          fireTableRowsDeleted(row, row);
         }
       }
+      
+      /**
+       * Removes a deleted storage row from an array of storage indexes, and renumbers the rows after it.
+       */
+      private void removeRowIndex(int[] rows, int length, int modelRow) {
+    	  int r = 0;
+    	  for (int i = 0; i < length; i++) {
+    		  if (rows[i] != modelRow)
+    			  rows[r++] = (rows[i] > modelRow) ? rows[i] - 1 : rows[i];
+    	  }
+      }
+      
+      /**
+       * Adds a newly stored row to the end of the displayed rows. New rows are always shown, even when a
+       * filter is in use, until the rows are next filtered. Like the table always has, the new row's cells are
+       * made editable or not to match the row before it.
+       */
+      private void showNewRow(int modelRow) {
+    	  for (int col = 0; col < getColumnCount(); col++) {
+    		  BitSet exceptions = this.editableExceptions[col];
+    		  if (exceptions != null)
+    			  exceptions.set(modelRow, modelRow > 0 && exceptions.get(modelRow - 1));
+    	  }
+    	  if (this.viewRows != null)
+    		  this.viewRows[modelRow] = modelRow;
+    	  if (this.filteredRows != null)
+    		  this.filteredRows[this.filteredCount++] = modelRow;
+      }
+      
+      /**
+       * Records that rows have been added or removed, which invalidates any background sort and every column index.
+       */
+      private void rowsChanged() {
+    	  this.rowVersion++;
+    	  this.dataVersion++;
+    	  Arrays.fill(this.indexes, null);
+      }
+      
+      /**
+       * Records that a value in the specified column has changed, which invalidates its index.
+       */
+      private void columnChanged(int col) {
+    	  this.dataVersion++;
+    	  this.indexes[col] = null;
+      }
+      
+      private void removeBit(BitSet bits, int index, int length) {
+    	  BitSet tail = bits.get(index + 1, length);
+    	  bits.clear(index, length);
+    	  for (int i = tail.nextSetBit(0); i >= 0; i = tail.nextSetBit(i + 1))
+    		  bits.set(index + i);
+      }
 
       public int getColumnCount()
       {
@@ -1205,59 +1648,350 @@ public class JSTable extends JPanel implements MouseListener {
 
       public int getRowCount()
       {
-        return this.data.length;
+        return (this.filteredRows == null) ? this.rowCount : this.filteredCount;
       }
       
       public void setRowCount(int count) {
-    	  for (int i = 0; i <= getRowCount(); i ++)
-    		  deleteRow(0);
-    	  for (int i = 0; i < count; i ++)
-    		  addRow();
+    	  for (int col = 0; col < getColumnCount(); col++) {
+    		  this.columnData[col] = newColumn(this.columnKinds[col], count);
+    		  this.editableExceptions[col] = null;
+    	  }
+    	  this.rowCount = count;
+    	  this.capacity = count;
+    	  this.viewRows = null;
+    	  this.filteredRows = null;
+    	  rowsChanged();
+    	  fireTableDataChanged();
       }
 
       public String getColumnName(int col)
       {
         return this.columnNames[col];
       }
+      
+      /**
+       * Converts a row index as displayed in the table into the index of the row in the columns' storage.
+       */
+      int modelRow(int row) {
+    	  if (this.filteredRows != null)
+    		  return this.filteredRows[row];
+    	  return (this.viewRows == null) ? row : this.viewRows[row];
+      }
+      
+      /**
+       * Gets the order in which every stored row is sorted, including any rows hidden by a filter, as an array of
+       * storage indexes.
+       */
+      int[] getRowOrder() {
+    	  if (this.viewRows == null) {
+    		  int[] order = new int[this.rowCount];
+    		  for (int i = 0; i < this.rowCount; i++)
+    			  order[i] = i;
+    		  return order;
+    	  }
+    	  return Arrays.copyOf(this.viewRows, this.rowCount);
+      }
+      
+      /**
+       * Changes the order in which the stored rows are displayed, without moving any data. The order must contain
+       * every storage index exactly once. If a filter is in use, the same rows stay hidden.
+       */
+      void setRowOrder(int[] order) {
+    	  this.viewRows = Arrays.copyOf(order, this.capacity);
+    	  if (this.filteredRows != null) {
+    		  BitSet shown = new BitSet(this.rowCount);
+    		  for (int i = 0; i < this.filteredCount; i++)
+    			  shown.set(this.filteredRows[i]);
+    		  int count = 0;
+    		  for (int i = 0; i < this.rowCount; i++) {
+    			  if (shown.get(order[i]))
+    				  this.filteredRows[count++] = order[i];
+    		  }
+    	  }
+    	  this.rowVersion++;
+    	  fireTableDataChanged();
+      }
+      
+      /**
+       * Gets the storage indexes of the rows currently shown, in the order they are displayed.
+       */
+      int[] getShownRows() {
+    	  if (this.filteredRows == null)
+    		  return getRowOrder();
+    	  return Arrays.copyOf(this.filteredRows, this.filteredCount);
+      }
+      
+      /**
+       * Shows only the specified rows, in the order given, or every row if <code>rows</code> is <code>null</code>.
+       * The rows should be given in the order they are currently sorted.
+       */
+      void setShownRows(int[] rows) {
+    	  if (rows == null) {
+    		  this.filteredRows = null;
+    	  } else {
+    		  this.filteredRows = Arrays.copyOf(rows, this.capacity);
+    		  this.filteredCount = rows.length;
+    	  }
+    	  fireTableDataChanged();
+      }
+      
+      /**
+       * Sets whether the specified column should keep an index of its values, which makes filters using
+       * <code>addStartsWith()</code> or <code>addRange()</code> on that column much faster.
+       */
+      void setIndexed(int col, boolean indexed) {
+    	  this.indexedColumns[col] = indexed;
+    	  this.indexes[col] = null;
+      }
+      
+      /**
+       * Gets the index for the specified column, building it first if the column has changed since it was last used.
+       * 
+       * @return the index, or <code>null</code> if the column is not indexed.
+       */
+      JSTableIndex getIndex(int col) {
+    	  if (!this.indexedColumns[col])
+    		  return null;
+    	  if (this.indexes[col] == null)
+    		  this.indexes[col] = new JSTableIndex(this, col);
+    	  return this.indexes[col];
+      }
+      
+      /**
+       * Determines how the specified column is stored, as one of the <code>_COLUMN</code> constants.
+       */
+      int getColumnKind(int col) {
+    	  return this.columnKinds[col];
+      }
 
       public Object getValueAt(int row, int col)
       {
-        return this.data[row][col];
+        return valueAt(modelRow(row), col);
+      }
+      
+      /**
+       * Gets the value at the specified storage row, ignoring the order the rows are displayed in.
+       */
+      Object valueAt(int row, int col)
+      {
+        Object column = this.columnData[col];
+        switch (this.columnKinds[col]) {
+        case DOUBLE_COLUMN:
+          return Double.valueOf(((double[]) column)[row]);
+        case INTEGER_COLUMN:
+          return Integer.valueOf(((int[]) column)[row]);
+        case BOOLEAN_COLUMN:
+          return Boolean.valueOf(((BitSet) column).get(row));
+        case STRING_COLUMN:
+          return ((String[]) column)[row];
+        default:
+          return ((Object[]) column)[row];
+        }
+      }
+      
+      public double getDoubleAt(int row, int col) {
+    	  return doubleAt(modelRow(row), col);
+      }
+      
+      double doubleAt(int row, int col) {
+    	  switch (this.columnKinds[col]) {
+    	  case DOUBLE_COLUMN:
+    		  return ((double[]) this.columnData[col])[row];
+    	  case INTEGER_COLUMN:
+    		  return ((int[]) this.columnData[col])[row];
+    	  case BOOLEAN_COLUMN:
+    		  return ((BitSet) this.columnData[col]).get(row) ? 1 : 0;
+    	  default:
+    		  return Double.parseDouble(valueAt(row, col).toString());
+    	  }
+      }
+      
+      public int getIntAt(int row, int col) {
+    	  return intAt(modelRow(row), col);
+      }
+      
+      int intAt(int row, int col) {
+    	  switch (this.columnKinds[col]) {
+    	  case INTEGER_COLUMN:
+    		  return ((int[]) this.columnData[col])[row];
+    	  case DOUBLE_COLUMN:
+    		  return (int) ((double[]) this.columnData[col])[row];
+    	  case BOOLEAN_COLUMN:
+    		  return ((BitSet) this.columnData[col]).get(row) ? 1 : 0;
+    	  default:
+    		  return Integer.parseInt(valueAt(row, col).toString());
+    	  }
+      }
+      
+      public boolean getBooleanAt(int row, int col) {
+    	  return booleanAt(modelRow(row), col);
+      }
+      
+      boolean booleanAt(int row, int col) {
+    	  switch (this.columnKinds[col]) {
+    	  case BOOLEAN_COLUMN:
+    		  return ((BitSet) this.columnData[col]).get(row);
+    	  case INTEGER_COLUMN:
+    		  return ((int[]) this.columnData[col])[row] != 0;
+    	  case DOUBLE_COLUMN:
+    		  return ((double[]) this.columnData[col])[row] != 0;
+    	  default:
+    		  return Boolean.parseBoolean(valueAt(row, col).toString());
+    	  }
+      }
+      
+      public void setDoubleAt(double value, int row, int col) {
+    	  if (this.columnKinds[col] == DOUBLE_COLUMN) {
+    		  ((double[]) this.columnData[col])[modelRow(row)] = value;
+    		  columnChanged(col);
+    		  fireTableCellUpdated(row, col);
+    	  }
+    	  else
+    		  setValueAt(Double.valueOf(value), row, col);
+      }
+      
+      public void setIntAt(int value, int row, int col) {
+    	  if (this.columnKinds[col] == INTEGER_COLUMN) {
+    		  ((int[]) this.columnData[col])[modelRow(row)] = value;
+    		  columnChanged(col);
+    		  fireTableCellUpdated(row, col);
+    	  }
+    	  else
+    		  setValueAt(Integer.valueOf(value), row, col);
+      }
+      
+      public void setBooleanAt(boolean value, int row, int col) {
+    	  if (this.columnKinds[col] == BOOLEAN_COLUMN) {
+    		  ((BitSet) this.columnData[col]).set(modelRow(row), value);
+    		  columnChanged(col);
+    		  fireTableCellUpdated(row, col);
+    	  }
+    	  else
+    		  setValueAt(Boolean.valueOf(value), row, col);
       }
 
       public void setEditable(int col, boolean state)
       {
-        for (int i = 0; i < getRowCount(); i++)
-          this.editable[i][col] = state;
+        this.columnEditable[col] = state;
+        this.editableExceptions[col] = null;
       }
 
       public void setEditable(int row, int col, boolean state)
       {
-        this.editable[row][col] = state;
+        row = modelRow(row);
+        if (state != this.columnEditable[col]) {
+          if (this.editableExceptions[col] == null)
+            this.editableExceptions[col] = new BitSet();
+          this.editableExceptions[col].set(row);
+        }
+        else if (this.editableExceptions[col] != null)
+          this.editableExceptions[col].clear(row);
       }
 
       public void setEditable(boolean state)
       {
-        for (int i = 0; i < getRowCount(); i++)
-          for (int j = 0; j < getColumnCount(); j++)
-            this.editable[i][j] = state;
+        for (int col = 0; col < getColumnCount(); col++)
+          setEditable(col, state);
       }
 
       public Class<? extends Object> getColumnClass(int c)
       {
-        return this.columnTypes[c].getClass();
+        return this.columnClasses[c];
       }
 
       public boolean isCellEditable(int row, int col)
       {
-        return this.editable[row][col];
+        BitSet exceptions = this.editableExceptions[col];
+        return (exceptions != null && exceptions.get(modelRow(row))) ? !this.columnEditable[col] : this.columnEditable[col];
       }
 
       public void setValueAt(Object value, int row, int col)
       {
-        this.data[row][col] = value;
+        storeValue(value, modelRow(row), col);
         fireTableCellUpdated(row, col);
       }
       
+      /**
+       * Stores a value at the specified storage row without firing an event. Values of a different class from the
+       * column are still stored, but the column then falls back to holding objects.
+       */
+      void storeValue(Object value, int row, int col)
+      {
+        columnChanged(col);
+        Object column = this.columnData[col];
+        switch (this.columnKinds[col]) {
+        case DOUBLE_COLUMN:
+          if (value instanceof Double) {
+            ((double[]) column)[row] = ((Double) value).doubleValue();
+            break;
+          }
+          storeAsObjects(value, row, col);
+          break;
+        case INTEGER_COLUMN:
+          if (value instanceof Integer) {
+            ((int[]) column)[row] = ((Integer) value).intValue();
+            break;
+          }
+          storeAsObjects(value, row, col);
+          break;
+        case BOOLEAN_COLUMN:
+          if (value instanceof Boolean) {
+            ((BitSet) column).set(row, ((Boolean) value).booleanValue());
+            break;
+          }
+          storeAsObjects(value, row, col);
+          break;
+        case STRING_COLUMN:
+          if (value instanceof String) {
+            ((String[]) column)[row] = (String) value;
+            break;
+          }
+          storeAsObjects(value, row, col);
+          break;
+        default:
+          ((Object[]) column)[row] = value;
+        }
+      }
+      
+      void storeDouble(double value, int row, int col) {
+    	  if (this.columnKinds[col] == DOUBLE_COLUMN) {
+    		  ((double[]) this.columnData[col])[row] = value;
+    		  columnChanged(col);
+    	  }
+    	  else
+    		  storeValue(Double.valueOf(value), row, col);
+      }
+      
+      void storeInt(int value, int row, int col) {
+    	  if (this.columnKinds[col] == INTEGER_COLUMN) {
+    		  ((int[]) this.columnData[col])[row] = value;
+    		  columnChanged(col);
+    	  }
+    	  else
+    		  storeValue(Integer.valueOf(value), row, col);
+      }
+      
+      void storeBoolean(boolean value, int row, int col) {
+    	  if (this.columnKinds[col] == BOOLEAN_COLUMN) {
+    		  ((BitSet) this.columnData[col]).set(row, value);
+    		  columnChanged(col);
+    	  }
+    	  else
+    		  storeValue(Boolean.valueOf(value), row, col);
+      }
+      
+      /**
+       * Called when a value of a different class is put into a typed column (using <code>setObjectAt()</code>,
+       * for instance). The column falls back to holding objects, so it keeps working as it always has.
+       */
+      private void storeAsObjects(Object value, int row, int col) {
+    	  Object[] objects = new Object[this.capacity];
+    	  for (int r = 0; r < this.rowCount; r++)
+    		  objects[r] = valueAt(r, col);
+    	  objects[row] = value;
+    	  this.columnData[col] = objects;
+    	  this.columnKinds[col] = OBJECT_COLUMN;
+      }
+      
    }
 }
@@ -0,0 +1,474 @@
+package js;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * JSTableFileIO reads and writes the rows of a {@link JSTable} as delimited text, such as CSV or TSV files.<br><br>
+ *
+ * Files are read through a fixed-size buffer and parsed one character at a time, so only the row being read is ever held
+ * in memory as text. Each field is converted straight into the type of its column, as given by the column's heading suffix,
+ * and rows are added to the table in batches. Fields may be quoted with <code>"</code>, in which case they can contain the
+ * delimiter, line breaks, or a doubled <code>""</code> for a quote character.<br><br>
+ *
+ * Files are written straight from the table's storage, in the order the rows are currently shown.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0.1
+ *
+ */
+class JSTableFileIO {
+
+	private static final int BUFFER_SIZE = 64 * 1024;
+	private static final int BATCH_SIZE = 64 * 1024;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+	};
+
+	private final JSTable.TableModel model;
+	private final char delimiter;
+
+	private char[] field = new char[256];
+	private int fieldLength;
+	private boolean fieldQuoted;
+	private boolean inQuotes;
+	private boolean quotePending;
+	private int column;
+	private int row = -1;
+	private boolean skipRow;
+	private int rowsInBatch;
+	private int firstShown;
+	private int line = 1;
+	private int invalidFields;
+	private int firstInvalidLine;
+	private int firstInvalidColumn;
+
+	private JSTableFileIO(JSTable.TableModel model, char delimiter) {
+		this.model = model;
+		this.delimiter = delimiter;
+	}
+
+	/**
+	 * Reads every row from a delimited text file and adds them to the end of the table.
+	 *
+	 * @param model the model to add the rows to
+	 * @param filename the path to the file to read
+	 * @param delimiter the character separating fields, such as <code>','</code> or <code>'\t'</code>
+	 * @param skipFirstLine whether the first line of the file contains headings rather than data
+	 * @return the number of rows added to the table.
+	 * @throws IOException if the file can't be read
+	 */
+	static int importRows(JSTable.TableModel model, String filename, char delimiter, boolean skipFirstLine) throws IOException {
+		JSTableFileIO reader = new JSTableFileIO(model, delimiter);
+		reader.skipRow = skipFirstLine;
+		reader.firstShown = model.getRowCount();
+		int first = model.rowCount;
+
+		CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE);
+		CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+		try {
+			boolean start = true;
+			boolean endOfFile = false;
+			while (! endOfFile) {
+				endOfFile = (channel.read(bytes) < 0);
+				bytes.flip();
+				decoder.decode(bytes, chars, endOfFile);
+				if (endOfFile)
+					decoder.flush(chars);
+				bytes.compact();
+
+				chars.flip();
+				if (start && chars.hasRemaining() && chars.get(0) == '\uFEFF')
+					chars.get();
+				start = false;
+				while (chars.hasRemaining())
+					reader.accept(chars.get());
+				chars.clear();
+			}
+			reader.finish();
+		} finally {
+			channel.close();
+			model.rowsAppended(reader.firstShown);
+		}
+		if (reader.invalidFields > 0) {
+			System.out.println("Could not convert " + reader.invalidFields + " value(s) in " + filename + " to their column's type, starting at line "
+					+ reader.firstInvalidLine + ", column " + (reader.firstInvalidColumn + 1) + "; they were left empty, or set to NaN in decimal columns.");
+		}
+		return model.rowCount - first;
+	}
+
+	/**
+	 * Writes the rows currently shown in the table to a delimited text file, replacing anything already in the file.
+	 *
+	 * @param model the model containing the rows to write
+	 * @param filename the path to the file to write
+	 * @param delimiter the character separating fields, such as <code>','</code> or <code>'\t'</code>
+	 * @param includeHeadings whether the first line of the file should contain the column headings
+	 * @throws IOException if the file can't be written
+	 */
+	static void exportRows(JSTable.TableModel model, String filename, char delimiter, boolean includeHeadings) throws IOException {
+		FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+		try {
+			Output out = new Output(channel);
+			StringBuilder line = new StringBuilder();
+			int columns = model.getColumnCount();
+
+			if (includeHeadings) {
+				for (int col = 0; col < columns; col ++) {
+					if (col > 0)
+						line.append(delimiter);
+					appendText(line, model.getColumnName(col), delimiter);
+				}
+				line.append('\n');
+				out.write(line);
+			}
+
+			for (int row : model.getShownRows()) {
+				line.setLength(0);
+				for (int col = 0; col < columns; col ++) {
+					if (col > 0)
+						line.append(delimiter);
+					switch (model.getColumnKind(col)) {
+					case JSTable.TableModel.DOUBLE_COLUMN:
+						line.append(((double[]) model.columnData[col])[row]);
+						break;
+					case JSTable.TableModel.INTEGER_COLUMN:
+						line.append(((int[]) model.columnData[col])[row]);
+						break;
+					case JSTable.TableModel.BOOLEAN_COLUMN:
+						line.append(model.booleanAt(row, col));
+						break;
+					default:
+						Object value = model.valueAt(row, col);
+						if (value != null)
+							appendText(line, value.toString(), delimiter);
+					}
+				}
+				line.append('\n');
+				out.write(line);
+			}
+			out.flush();
+		} finally {
+			channel.close();
+		}
+	}
+
+	/* *** Begin import methods *** */
+
+	private void accept(char c) {
+		if (inQuotes) {
+			if (quotePending) {
+				quotePending = false;
+				if (c == '"') {
+					appendToField(c);
+					return;
+				}
+				inQuotes = false;
+			} else if (c == '"') {
+				quotePending = true;
+				return;
+			} else {
+				if (c == '\n')
+					line ++;
+				appendToField(c);
+				return;
+			}
+		}
+
+		if (c == delimiter) {
+			endField();
+		} else if (c == '\n') {
+			if (column > 0 || fieldLength > 0 || fieldQuoted) {
+				endField();
+				endRow();
+			}
+			line ++;
+		} else if (c == '\r') {
+			return;
+		} else if (c == '"' && fieldLength == 0 && ! fieldQuoted) {
+			inQuotes = true;
+			fieldQuoted = true;
+		} else {
+			appendToField(c);
+		}
+	}
+
+	private void finish() {
+		if (inQuotes && quotePending)
+			inQuotes = false;
+		if (column > 0 || fieldLength > 0 || fieldQuoted) {
+			endField();
+			endRow();
+		}
+	}
+
+	private void appendToField(char c) {
+		if (fieldLength == field.length) {
+			char[] larger = new char[field.length * 2];
+			System.arraycopy(field, 0, larger, 0, fieldLength);
+			field = larger;
+		}
+		field[fieldLength ++] = c;
+	}
+
+	private void endField() {
+		if (! skipRow && column < model.getColumnCount()) {
+			if (row < 0)
+				row = model.reserveRow();
+			storeField();
+		}
+		column ++;
+		fieldLength = 0;
+		fieldQuoted = false;
+	}
+
+	private void endRow() {
+		if (skipRow) {
+			skipRow = false;
+		} else if (row >= 0) {
+			model.commitRow();
+			if (++ rowsInBatch == BATCH_SIZE) {
+				model.rowsAppended(firstShown);
+				firstShown = model.getRowCount();
+				rowsInBatch = 0;
+			}
+		}
+		row = -1;
+		column = 0;
+	}
+
+	/**
+	 * Converts the current field into the type of its column and stores it, without creating a string for numbers
+	 * or booleans. Empty fields are left empty. Fields which can't be converted are stored as <code>NaN</code> in decimal
+	 * columns and left empty in other columns, so that one bad value doesn't turn the whole column into objects, and are
+	 * counted so the import can report them.
+	 */
+	private void storeField() {
+		int kind = model.getColumnKind(column);
+		if (kind == JSTable.TableModel.STRING_COLUMN || kind == JSTable.TableModel.OBJECT_COLUMN) {
+			model.storeValue(new String(field, 0, fieldLength), row, column);
+			return;
+		}
+
+		int start = 0;
+		int end = fieldLength;
+		while (start < end && field[start] == ' ')
+			start ++;
+		while (end > start && field[end - 1] == ' ')
+			end --;
+		if (start == end)
+			return;
+
+		boolean stored = false;
+		if (kind == JSTable.TableModel.INTEGER_COLUMN) {
+			long value = parseLong(field, start, end);
+			if (value >= Integer.MIN_VALUE && value <= Integer.MAX_VALUE) {
+				model.storeInt((int) value, row, column);
+				stored = true;
+			}
+		} else if (kind == JSTable.TableModel.DOUBLE_COLUMN) {
+			double value = parseDouble(field, start, end);
+			if (! Double.isNaN(value) || matches(field, start, end, "NaN")) {
+				model.storeDouble(value, row, column);
+				stored = true;
+			}
+		} else if (kind == JSTable.TableModel.BOOLEAN_COLUMN) {
+			if (matches(field, start, end, "true") || matches(field, start, end, "yes") || matches(field, start, end, "1")) {
+				model.storeBoolean(true, row, column);
+				stored = true;
+			} else if (matches(field, start, end, "false") || matches(field, start, end, "no") || matches(field, start, end, "0")) {
+				stored = true;
+			}
+		}
+
+		if (! stored) {
+			if (kind == JSTable.TableModel.DOUBLE_COLUMN)
+				model.storeDouble(Double.NaN, row, column);
+			if (invalidFields ++ == 0) {
+				firstInvalidLine = line;
+				firstInvalidColumn = column;
+			}
+		}
+	}
+
+	/**
+	 * Parses a whole number from part of a character array.
+	 *
+	 * @return the number, or <code>Long.MIN_VALUE</code> if the characters are not a valid whole number.
+	 */
+	static long parseLong(char[] chars, int start, int end) {
+		boolean negative = false;
+		if (chars[start] == '-' || chars[start] == '+') {
+			negative = (chars[start] == '-');
+			start ++;
+		}
+		if (start == end || end - start > 18)
+			return Long.MIN_VALUE;
+
+		long value = 0;
+		for (int i = start; i < end; i ++) {
+			int digit = chars[i] - '0';
+			if (digit < 0 || digit > 9)
+				return Long.MIN_VALUE;
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses a decimal number from part of a character array. Plain decimals with up to 15 significant digits are converted
+	 * directly, which gives exactly the same result as <code>Double.parseDouble()</code>; anything else falls back to it.
+	 *
+	 * @return the number, or <code>NaN</code> if the characters are not a valid number.
+	 */
+	static double parseDouble(char[] chars, int start, int end) {
+		int i = start;
+		boolean negative = false;
+		if (chars[i] == '-' || chars[i] == '+') {
+			negative = (chars[i] == '-');
+			i ++;
+		}
+
+		long mantissa = 0;
+		int digits = 0;
+		boolean sawDigit = false;
+		int scale = 0;
+		boolean point = false;
+		boolean simple = (i < end);
+		for (; i < end && simple; i ++) {
+			char c = chars[i];
+			if (c >= '0' && c <= '9') {
+				mantissa = mantissa * 10 + (c - '0');
+				sawDigit = true;
+				if (mantissa > 0)
+					digits ++;
+				if (point)
+					scale ++;
+			} else if (c == '.' && ! point) {
+				point = true;
+			} else {
+				simple = false;
+			}
+		}
+
+		if (simple && sawDigit && digits <= 15 && scale < POWERS_OF_TEN.length) {
+			double value = mantissa / POWERS_OF_TEN[scale];
+			return negative ? -value : value;
+		}
+
+		try {
+			return Double.parseDouble(new String(chars, start, end - start));
+		} catch (NumberFormatException e) {
+			return Double.NaN;
+		}
+	}
+
+	private static boolean matches(char[] chars, int start, int end, String text) {
+		if (end - start != text.length())
+			return false;
+		for (int i = 0; i < text.length(); i ++) {
+			if (Character.toLowerCase(chars[start + i]) != Character.toLowerCase(text.charAt(i)))
+				return false;
+		}
+		return true;
+	}
+
+	/* ***  End import methods  *** */
+	/* *** Begin export methods *** */
+
+	private static void appendText(StringBuilder line, String text, char delimiter) {
+		boolean quote = false;
+		for (int i = 0; i < text.length() && ! quote; i ++) {
+			char c = text.charAt(i);
+			quote = (c == delimiter || c == '"' || c == '\n' || c == '\r');
+		}
+		if (! quote) {
+			line.append(text);
+			return;
+		}
+
+		line.append('"');
+		for (int i = 0; i < text.length(); i ++) {
+			char c = text.charAt(i);
+			if (c == '"')
+				line.append('"');
+			line.append(c);
+		}
+		line.append('"');
+	}
+
+	/**
+	 * Encodes text into a fixed-size buffer and writes it to a channel whenever the buffer fills up.
+	 */
+	private static class Output {
+
+		private final FileChannel channel;
+		private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		private final CharBuffer chars = CharBuffer.allocate(BUFFER_SIZE);
+		private final ByteBuffer bytes = ByteBuffer.allocateDirect(BUFFER_SIZE * 4);
+
+		Output(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void write(StringBuilder text) throws IOException {
+			int position = 0;
+			while (position < text.length()) {
+				int count = Math.min(chars.remaining(), text.length() - position);
+				text.getChars(position, position + count, chars.array(), chars.arrayOffset() + chars.position());
+				chars.position(chars.position() + count);
+				position += count;
+				if (! chars.hasRemaining())
+					drain(false);
+			}
+		}
+
+		void flush() throws IOException {
+			drain(true);
+		}
+
+		private void drain(boolean endOfInput) throws IOException {
+			chars.flip();
+			CoderResult result;
+			do {
+				result = encoder.encode(chars, bytes, endOfInput);
+				writeBytes();
+			} while (result.isOverflow());
+			if (endOfInput) {
+				while (encoder.flush(bytes).isOverflow())
+					writeBytes();
+				writeBytes();
+			}
+			chars.compact();
+		}
+
+		private void writeBytes() throws IOException {
+			bytes.flip();
+			while (bytes.hasRemaining())
+				channel.write(bytes);
+			bytes.clear();
+		}
+
+	}
+
+	/* *** End export methods *** */
+
+}
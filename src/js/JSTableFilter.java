@@ -0,0 +1,373 @@
+package js;
+
+import java.util.BitSet;
+import java.util.Vector;
+
+/**
+ * JSTableFilter describes which rows of a {@link JSTable} should be shown. A filter is made up of any number of conditions,
+ * and a row is only shown if it meets every one of them. Filtering never copies or changes the table's data; rows which
+ * don't match are simply hidden until the filter is removed.<br><br>
+ *
+ * <h3>Usage</h3>
+ *
+ * <pre>
+ * JSTableFilter filter = new JSTableFilter();
+ * filter.addContains(1, "widget");  // the Name column must contain "widget", ignoring case
+ * filter.addRange(2, 0.0, 9.99);     // and the Price column must be between 0.00 and 9.99
+ *
+ * table.setFilter(filter);
+ * </pre>
+ *
+ * If a new filter only adds conditions to the previous one, or makes its conditions stricter (for example, by searching
+ * for <code>"widgets"</code> instead of <code>"widget"</code>), the table only checks the rows which were already shown.
+ * This makes filtering as the user types very quick. For even faster lookups on large tables, columns used with
+ * <code>addStartsWith()</code> or <code>addRange()</code> can be indexed with {@link JSTable#setColumnIndexed(int, boolean)}.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0.1
+ *
+ */
+public class JSTableFilter {
+
+	/**
+	 * A custom test for the values in a column, for use with <code>addCondition()</code>.
+	 */
+	public interface Condition {
+
+		/**
+		 * Determines whether a row should be shown.
+		 *
+		 * @param value the value in the row's cell for the column being tested
+		 * @return <code>true</code> if the row should be shown, otherwise <code>false</code>.
+		 */
+		boolean matches(Object value);
+
+	}
+
+	private Vector<Term> terms = new Vector<Term>();
+
+	/**
+	 * Creates a new filter with no conditions, which shows every row.
+	 */
+	public JSTableFilter() {
+
+	}
+
+	/**
+	 * Creates a new filter with the same conditions as an existing filter. Adding conditions to the copy does not affect
+	 * the original.
+	 *
+	 * @param filter the filter to copy
+	 */
+	public JSTableFilter(JSTableFilter filter) {
+		terms.addAll(filter.terms);
+	}
+
+	/**
+	 * Creates a copy of a filter whose conditions refer to columns by their storage index rather than as numbered by the
+	 * table's view, so it keeps testing the same columns when they are dragged into a different order.
+	 *
+	 * @param filter the filter to copy
+	 * @param modelColumns the storage index of each column, as numbered by the table's view
+	 */
+	JSTableFilter(JSTableFilter filter, int[] modelColumns) {
+		for (Term term : filter.terms)
+			terms.add(term.column < 0 ? term : term.resolve(modelColumns[term.column]));
+	}
+
+	/**
+	 * Only shows rows where the specified column contains the given text, ignoring case.
+	 *
+	 * @param column the column to search
+	 * @param text the text to search for
+	 */
+	public void addContains(int column, String text) {
+		terms.add(new ContainsTerm(column, text.toLowerCase(), false));
+	}
+
+	/**
+	 * Only shows rows where the specified column starts with the given text, ignoring case.
+	 *
+	 * @param column the column to search
+	 * @param text the text the column's value must start with
+	 */
+	public void addStartsWith(int column, String text) {
+		terms.add(new ContainsTerm(column, text.toLowerCase(), true));
+	}
+
+	/**
+	 * Only shows rows where the specified column holds a number between the given limits, inclusive.
+	 * Rows whose value is not a number are hidden.
+	 *
+	 * @param column the column to test
+	 * @param min the lowest value to show
+	 * @param max the highest value to show
+	 */
+	public void addRange(int column, double min, double max) {
+		terms.add(new RangeTerm(column, min, max));
+	}
+
+	/**
+	 * Only shows rows where at least one column contains the given text, ignoring case.
+	 *
+	 * @param text the text to search for
+	 */
+	public void addSearch(String text) {
+		terms.add(new ContainsTerm(-1, text.toLowerCase(), false));
+	}
+
+	/**
+	 * Only shows rows whose value in the specified column passes a custom test.
+	 *
+	 * @param column the column to test
+	 * @param condition the test which each value must pass
+	 */
+	public void addCondition(int column, Condition condition) {
+		terms.add(new ConditionTerm(column, condition));
+	}
+
+	/**
+	 * Determines whether this filter has any conditions.
+	 *
+	 * @return <code>true</code> if the filter shows every row, otherwise <code>false</code>.
+	 */
+	public boolean isEmpty() {
+		return terms.isEmpty();
+	}
+
+	/**
+	 * Determines whether every row shown by this filter would also be shown by the specified filter, judging by their conditions.
+	 * Both filters must have been created with the same column numbering.
+	 */
+	boolean narrows(JSTableFilter previous) {
+		for (Term old : previous.terms) {
+			boolean narrowed = false;
+			for (Term term : terms) {
+				if (term.narrows(old)) {
+					narrowed = true;
+					break;
+				}
+			}
+			if (! narrowed)
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * Finds the rows which pass this filter.
+	 *
+	 * @param model the model containing the table's data
+	 * @param candidates the storage indexes of the rows to test, in the order they should be shown
+	 * @return the storage indexes of the matching rows, in the same order as <code>candidates</code>.
+	 */
+	int[] apply(JSTable.TableModel model, int[] candidates) {
+		BitSet indexed = null;
+		boolean[] covered = new boolean[terms.size()];
+		for (int i = 0; i < terms.size(); i ++) {
+			Term term = terms.get(i);
+			if (term.column < 0)
+				continue;
+			JSTableIndex index = model.getIndex(term.column);
+			BitSet matches = (index == null) ? null : term.lookup(index);
+			if (matches != null) {
+				covered[i] = true;
+				if (indexed == null)
+					indexed = matches;
+				else
+					indexed.and(matches);
+			}
+		}
+
+		int[] result = new int[candidates.length];
+		int count = 0;
+		for (int row : candidates) {
+			if (indexed != null && ! indexed.get(row))
+				continue;
+			boolean matches = true;
+			for (int i = 0; i < terms.size() && matches; i ++) {
+				if (! covered[i])
+					matches = terms.get(i).matches(model, row);
+			}
+			if (matches)
+				result[count ++] = row;
+		}
+
+		int[] rows = new int[count];
+		System.arraycopy(result, 0, rows, 0, count);
+		return rows;
+	}
+
+	/**
+	 * Determines whether some text contains another piece of text, ignoring case, without creating any new strings.
+	 *
+	 * @param text the text to search
+	 * @param lowerCaseTerm the text to search for, which must already be in lower case
+	 * @param atStart whether the term must appear at the start of the text
+	 */
+	static boolean containsIgnoreCase(String text, String lowerCaseTerm, boolean atStart) {
+		int last = atStart ? 0 : text.length() - lowerCaseTerm.length();
+		for (int i = 0; i <= last; i ++) {
+			if (text.regionMatches(true, i, lowerCaseTerm, 0, lowerCaseTerm.length()))
+				return true;
+		}
+		return false;
+	}
+
+	/* *** Begin internal classes *** */
+
+	private static abstract class Term {
+
+		final int column;
+
+		Term(int column) {
+			this.column = column;
+		}
+
+		abstract boolean matches(JSTable.TableModel model, int row);
+
+		/**
+		 * Creates a copy of this term which tests the specified column instead.
+		 */
+		abstract Term resolve(int column);
+
+		/**
+		 * Determines whether every row passing this term would also pass the specified term.
+		 */
+		abstract boolean narrows(Term previous);
+
+		/**
+		 * Finds the rows passing this term using an index of its column.
+		 *
+		 * @return the storage indexes of the matching rows, or <code>null</code> if the index can't be used for this term.
+		 */
+		BitSet lookup(JSTableIndex index) {
+			return null;
+		}
+
+		static String text(JSTable.TableModel model, int row, int column) {
+			if (model.getColumnKind(column) == JSTable.TableModel.STRING_COLUMN)
+				return ((String[]) model.columnData[column])[row];
+			Object value = model.valueAt(row, column);
+			return (value == null) ? "" : value.toString();
+		}
+
+	}
+
+	private static class ContainsTerm extends Term {
+
+		private final String text;
+		private final boolean atStart;
+
+		ContainsTerm(int column, String text, boolean atStart) {
+			super(column);
+			this.text = text;
+			this.atStart = atStart;
+		}
+
+		boolean matches(JSTable.TableModel model, int row) {
+			if (column >= 0)
+				return containsIgnoreCase(text(model, row, column), text, atStart);
+
+			for (int col = 0; col < model.getColumnCount(); col ++) {
+				if (containsIgnoreCase(text(model, row, col), text, atStart))
+					return true;
+			}
+			return false;
+		}
+
+		Term resolve(int column) {
+			return new ContainsTerm(column, text, atStart);
+		}
+
+		boolean narrows(Term previous) {
+			if (! (previous instanceof ContainsTerm) || previous.column != column)
+				return false;
+			ContainsTerm old = (ContainsTerm) previous;
+			if (old.atStart)
+				return atStart && text.startsWith(old.text);
+			return text.contains(old.text);
+		}
+
+		BitSet lookup(JSTableIndex index) {
+			return (atStart && index.isTextIndex()) ? index.startingWith(text) : null;
+		}
+
+	}
+
+	private static class RangeTerm extends Term {
+
+		private final double min;
+		private final double max;
+
+		RangeTerm(int column, double min, double max) {
+			super(column);
+			this.min = min;
+			this.max = max;
+		}
+
+		boolean matches(JSTable.TableModel model, int row) {
+			int col = column;
+			double value;
+			switch (model.getColumnKind(col)) {
+			case JSTable.TableModel.DOUBLE_COLUMN:
+				value = ((double[]) model.columnData[col])[row];
+				break;
+			case JSTable.TableModel.INTEGER_COLUMN:
+				value = ((int[]) model.columnData[col])[row];
+				break;
+			default:
+				try {
+					value = model.doubleAt(row, col);
+				} catch (RuntimeException e) {
+					return false;
+				}
+			}
+			return value >= min && value <= max;
+		}
+
+		Term resolve(int column) {
+			return new RangeTerm(column, min, max);
+		}
+
+		boolean narrows(Term previous) {
+			if (! (previous instanceof RangeTerm) || previous.column != column)
+				return false;
+			RangeTerm old = (RangeTerm) previous;
+			return min >= old.min && max <= old.max;
+		}
+
+		BitSet lookup(JSTableIndex index) {
+			return index.isTextIndex() ? null : index.between(min, max);
+		}
+
+	}
+
+	private static class ConditionTerm extends Term {
+
+		private final Condition condition;
+
+		ConditionTerm(int column, Condition condition) {
+			super(column);
+			this.condition = condition;
+		}
+
+		boolean matches(JSTable.TableModel model, int row) {
+			return condition.matches(model.valueAt(row, column));
+		}
+
+		Term resolve(int column) {
+			return new ConditionTerm(column, condition);
+		}
+
+		boolean narrows(Term previous) {
+			return (previous instanceof ConditionTerm) && previous.column == column
+					&& ((ConditionTerm) previous).condition == condition;
+		}
+
+	}
+
+	/* *** End internal classes *** */
+
+}
@@ -0,0 +1,123 @@
+package js;
+
+import java.util.BitSet;
+
+/**
+ * JSTableIndex keeps the rows of one column of a {@link JSTable} sorted by their values, so that rows starting with
+ * some text, or falling within a numeric range, can be found with a binary search rather than by checking every row.
+ * String columns are indexed ignoring case.<br><br>
+ *
+ * An index is built from the table's current values and is not updated when the table changes; the table discards it
+ * and builds a new one the next time it is needed.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0
+ *
+ */
+class JSTableIndex {
+
+	private final int[] rows;
+	private final String[] strings;
+	private final double[] numbers;
+
+	/**
+	 * Builds an index of the values currently in the specified column.
+	 *
+	 * @param model the model containing the column
+	 * @param column the column to index
+	 */
+	JSTableIndex(JSTable.TableModel model, int column) {
+		int rowCount = model.rowCount;
+		rows = new int[rowCount];
+		for (int row = 0; row < rowCount; row ++)
+			rows[row] = row;
+
+		int kind = model.getColumnKind(column);
+		if (kind == JSTable.TableModel.DOUBLE_COLUMN || kind == JSTable.TableModel.INTEGER_COLUMN
+				|| kind == JSTable.TableModel.BOOLEAN_COLUMN) {
+			final double[] keys = new double[rowCount];
+			for (int row = 0; row < rowCount; row ++)
+				keys[row] = model.doubleAt(row, column);
+			JSTableSorter.sort(rows, new JSTableSorter.RowComparator() {
+				public int compare(int a, int b) {
+					return Double.compare(keys[a], keys[b]);
+				}
+			});
+
+			numbers = new double[rowCount];
+			for (int i = 0; i < rowCount; i ++)
+				numbers[i] = keys[rows[i]];
+			strings = null;
+		} else {
+			final String[] keys = new String[rowCount];
+			for (int row = 0; row < rowCount; row ++) {
+				Object value = model.valueAt(row, column);
+				keys[row] = (value == null) ? "" : value.toString().toLowerCase();
+			}
+			JSTableSorter.sort(rows, new JSTableSorter.RowComparator() {
+				public int compare(int a, int b) {
+					return keys[a].compareTo(keys[b]);
+				}
+			});
+
+			strings = new String[rowCount];
+			for (int i = 0; i < rowCount; i ++)
+				strings[i] = keys[rows[i]];
+			numbers = null;
+		}
+	}
+
+	/**
+	 * Determines whether this index can be used to look up text, rather than numbers.
+	 */
+	boolean isTextIndex() {
+		return strings != null;
+	}
+
+	/**
+	 * Finds every row whose value starts with the specified text, ignoring case.
+	 *
+	 * @param prefix the text to search for, which must already be in lower case
+	 * @return the storage indexes of the matching rows.
+	 */
+	BitSet startingWith(String prefix) {
+		BitSet matches = new BitSet();
+		int low = 0;
+		int high = strings.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (strings[mid].compareTo(prefix) < 0)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		for (int i = low; i < strings.length && strings[i].startsWith(prefix); i ++)
+			matches.set(rows[i]);
+		return matches;
+	}
+
+	/**
+	 * Finds every row whose value is between the specified limits, inclusive.
+	 *
+	 * @param min the lowest value to include
+	 * @param max the highest value to include
+	 * @return the storage indexes of the matching rows.
+	 */
+	BitSet between(double min, double max) {
+		BitSet matches = new BitSet();
+		int low = 0;
+		int high = numbers.length;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (numbers[mid] < min)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		for (int i = low; i < numbers.length && numbers[i] <= max; i ++)
+			matches.set(rows[i]);
+		return matches;
+	}
+
+}
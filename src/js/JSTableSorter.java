@@ -0,0 +1,382 @@
+package js;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * JSTableSorter works out the order the rows of a {@link JSTable} should be displayed in when it is sorted.
+ * Rather than moving the table's data, it sorts an array of row indexes using a stable merge sort, so rows
+ * with equal values keep the order they were in before.<br><br>
+ *
+ * The values used for sorting are worked out once before the sort begins. Integer and Double columns are
+ * compared using the table's own storage, and String columns where every value is a time (<code>HH:MM:SS</code>)
+ * or a date (<code>DD/MM/YY</code>) are converted into numbers so they sort chronologically.<br><br>
+ *
+ * Very large tables can be sorted in the background with a {@link ParallelSort}, which splits the work across a
+ * fork/join pool. The values to sort by are copied with a {@link ColumnCopy} first, and the sort keys are worked
+ * out from the copy on the background thread.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.0.1
+ *
+ */
+class JSTableSorter {
+
+	private static final int INSERTION_SORT_THRESHOLD = 16;
+	private static final int PARALLEL_SORT_THRESHOLD = 8192;
+
+	/**
+	 * Compares two rows of a table by their storage indexes.
+	 */
+	interface RowComparator {
+		int compare(int a, int b);
+	}
+
+	/**
+	 * Sorts the specified rows of a table by one or more columns. The first column is the most significant; later
+	 * columns are only used to order rows which are equal in every earlier column.
+	 *
+	 * @param model the model containing the data to sort by
+	 * @param rows the storage indexes of the rows to sort, in their current order. This array is sorted in place.
+	 * @param columns the columns to sort by
+	 * @param ascending whether each of the columns should be sorted in ascending order
+	 */
+	static void sort(JSTable.TableModel model, int[] rows, int[] columns, boolean[] ascending) {
+		RowComparator comparator = null;
+		for (int i = columns.length - 1; i >= 0; i --) {
+			comparator = thenComparing(comparatorFor(model, columns[i], ascending[i]), comparator);
+		}
+		if (comparator != null)
+			sort(rows, comparator);
+	}
+
+	/**
+	 * Sorts an array of row indexes with a stable merge sort.
+	 *
+	 * @param rows the row indexes to sort
+	 * @param comparator the comparator used to order the rows
+	 */
+	static void sort(int[] rows, RowComparator comparator) {
+		int[] buffer = rows.clone();
+		mergeSort(buffer, rows, 0, rows.length, comparator);
+	}
+
+	/**
+	 * Sorts <code>dest[low..high)</code>, using <code>src</code> (which must hold the same values) as working space.
+	 */
+	static void mergeSort(int[] src, int[] dest, int low, int high, RowComparator comparator) {
+		int length = high - low;
+		if (length <= INSERTION_SORT_THRESHOLD) {
+			insertionSort(dest, low, high, comparator);
+			return;
+		}
+
+		int mid = (low + high) >>> 1;
+		mergeSort(dest, src, low, mid, comparator);
+		mergeSort(dest, src, mid, high, comparator);
+		merge(src, dest, low, mid, high, comparator);
+	}
+
+	/**
+	 * Merges the sorted runs <code>src[low..mid)</code> and <code>src[mid..high)</code> into <code>dest</code>.
+	 */
+	static void merge(int[] src, int[] dest, int low, int mid, int high, RowComparator comparator) {
+		if (comparator.compare(src[mid - 1], src[mid]) <= 0) {
+			System.arraycopy(src, low, dest, low, high - low);
+			return;
+		}
+
+		int p = low;
+		int q = mid;
+		for (int i = low; i < high; i ++) {
+			if (q >= high || (p < mid && comparator.compare(src[p], src[q]) <= 0))
+				dest[i] = src[p ++];
+			else
+				dest[i] = src[q ++];
+		}
+	}
+
+	private static void insertionSort(int[] rows, int low, int high, RowComparator comparator) {
+		for (int i = low + 1; i < high; i ++) {
+			int row = rows[i];
+			int j = i - 1;
+			while (j >= low && comparator.compare(rows[j], row) > 0) {
+				rows[j + 1] = rows[j];
+				j --;
+			}
+			rows[j + 1] = row;
+		}
+	}
+
+	private static RowComparator thenComparing(final RowComparator first, final RowComparator second) {
+		if (second == null)
+			return first;
+		return new RowComparator() {
+			public int compare(int a, int b) {
+				int result = first.compare(a, b);
+				return (result != 0) ? result : second.compare(a, b);
+			}
+		};
+	}
+
+	/**
+	 * Creates a comparator for the values in a single column, working out any sort keys up front.
+	 */
+	static RowComparator comparatorFor(JSTable.TableModel model, int column, boolean ascending) {
+		return comparatorFor(model.getColumnKind(column), model.columnData[column], model.rowCount, ascending);
+	}
+
+	private static RowComparator comparatorFor(int kind, Object data, int rowCount, boolean ascending) {
+		final int direction = ascending ? 1 : -1;
+
+		switch (kind) {
+		case JSTable.TableModel.DOUBLE_COLUMN:
+			final double[] doubles = (double[]) data;
+			return new RowComparator() {
+				public int compare(int a, int b) {
+					return direction * Double.compare(doubles[a], doubles[b]);
+				}
+			};
+		case JSTable.TableModel.INTEGER_COLUMN:
+			final int[] ints = (int[]) data;
+			return new RowComparator() {
+				public int compare(int a, int b) {
+					return direction * compareInts(ints[a], ints[b]);
+				}
+			};
+		case JSTable.TableModel.BOOLEAN_COLUMN:
+			final BitSet bits = (BitSet) data;
+			return new RowComparator() {
+				public int compare(int a, int b) {
+					return direction * compareInts(bits.get(a) ? 1 : 0, bits.get(b) ? 1 : 0);
+				}
+			};
+		default:
+			final String[] strings = stringKeys(kind, data, rowCount);
+			final int[] keys = chronologicalKeys(strings, rowCount);
+			if (keys != null) {
+				return new RowComparator() {
+					public int compare(int a, int b) {
+						return direction * compareInts(keys[a], keys[b]);
+					}
+				};
+			}
+			return new RowComparator() {
+				public int compare(int a, int b) {
+					return direction * strings[a].compareToIgnoreCase(strings[b]);
+				}
+			};
+		}
+	}
+
+	static int compareInts(int a, int b) {
+		return (a < b) ? -1 : ((a == b) ? 0 : 1);
+	}
+
+	/**
+	 * Gets the values of a String or Object column as strings, indexed by storage row.
+	 */
+	private static String[] stringKeys(int kind, Object data, int rowCount) {
+		if (kind == JSTable.TableModel.STRING_COLUMN)
+			return (String[]) data;
+
+		Object[] values = (Object[]) data;
+		String[] strings = new String[rowCount];
+		for (int row = 0; row < rowCount; row ++) {
+			Object value = values[row];
+			strings[row] = (value == null) ? "" : value.toString();
+		}
+		return strings;
+	}
+
+	/**
+	 * If every non-empty value is a time in the form <code>HH:MM:SS</code>, or every non-empty value is a date in the form
+	 * <code>DD/MM/YY</code>, converts the values into integers which sort in chronological order. Empty values sort first.
+	 *
+	 * @return the keys, indexed by storage row, or <code>null</code> if the values are not all times or all dates.
+	 */
+	static int[] chronologicalKeys(String[] strings, int rowCount) {
+		char separator = 0;
+		int[] keys = new int[rowCount];
+
+		for (int row = 0; row < rowCount; row ++) {
+			String value = strings[row];
+			if (value == null || value.length() == 0) {
+				keys[row] = -1;
+				continue;
+			}
+			if (value.length() != 8)
+				return null;
+
+			char c = value.charAt(2);
+			if ((c != ':' && c != '/') || value.charAt(5) != c || (separator != 0 && separator != c))
+				return null;
+			separator = c;
+
+			int first = twoDigits(value, 0);
+			int second = twoDigits(value, 3);
+			int third = twoDigits(value, 6);
+			if (first < 0 || second < 0 || third < 0)
+				return null;
+
+			if (separator == ':')
+				keys[row] = first * 3600 + second * 60 + third;
+			else
+				keys[row] = third * 10000 + second * 100 + first;
+		}
+
+		return (separator != 0) ? keys : null;
+	}
+
+	private static int twoDigits(String value, int index) {
+		int tens = value.charAt(index) - '0';
+		int units = value.charAt(index + 1) - '0';
+		if (tens < 0 || tens > 9 || units < 0 || units > 9)
+			return -1;
+		return tens * 10 + units;
+	}
+
+	/**
+	 * A copy of the values in one column of a table, so that a comparator for them can be created and used on another
+	 * thread while the table is being edited. Making the copy only copies the column's storage; the sort keys, such as
+	 * the numbers used to sort times and dates, are worked out by <code>comparator()</code>.
+	 */
+	static class ColumnCopy {
+
+		private final int kind;
+		private final Object data;
+		private final int rowCount;
+
+		ColumnCopy(JSTable.TableModel model, int column) {
+			this.kind = model.getColumnKind(column);
+			this.rowCount = model.rowCount;
+			Object data = model.columnData[column];
+			switch (kind) {
+			case JSTable.TableModel.DOUBLE_COLUMN:
+				this.data = Arrays.copyOf((double[]) data, rowCount);
+				break;
+			case JSTable.TableModel.INTEGER_COLUMN:
+				this.data = Arrays.copyOf((int[]) data, rowCount);
+				break;
+			case JSTable.TableModel.BOOLEAN_COLUMN:
+				this.data = ((BitSet) data).clone();
+				break;
+			case JSTable.TableModel.STRING_COLUMN:
+				this.data = Arrays.copyOf((String[]) data, rowCount);
+				break;
+			default:
+				this.data = Arrays.copyOf((Object[]) data, rowCount);
+			}
+		}
+
+		/**
+		 * Creates a comparator for the copied values, working out any sort keys.
+		 */
+		RowComparator comparator(boolean ascending) {
+			return comparatorFor(kind, data, rowCount, ascending);
+		}
+
+	}
+
+	/**
+	 * A merge sort of an array of row indexes which is split across the threads of a fork/join pool. The sort can be
+	 * cancelled from another thread, and reports how far through it is so that progress can be shown while it runs.
+	 */
+	static class ParallelSort {
+
+		private final int[] rows;
+		private RowComparator comparator;
+		private final AtomicLong completed = new AtomicLong();
+		private final long total;
+		private volatile boolean cancelled;
+
+		/**
+		 * @param rows the row indexes to sort, which are sorted in place
+		 */
+		ParallelSort(int[] rows) {
+			this.rows = rows;
+			this.total = work(0, rows.length);
+		}
+
+		/**
+		 * Runs the sort on the specified pool, returning once it has finished.
+		 *
+		 * @param comparator a comparator which is safe to use from several threads at once
+		 * @throws CancellationException if the sort was cancelled before it finished
+		 */
+		void run(ForkJoinPool pool, RowComparator comparator) {
+			this.comparator = comparator;
+			int[] buffer = rows.clone();
+			pool.invoke(new SortTask(buffer, rows, 0, rows.length));
+			if (cancelled)
+				throw new CancellationException("The sort was cancelled.");
+		}
+
+		void cancel() {
+			cancelled = true;
+		}
+
+		boolean isCancelled() {
+			return cancelled;
+		}
+
+		/**
+		 * Determines how far through the sort is, from <code>0</code> to <code>1</code>.
+		 */
+		double getProgress() {
+			return (total == 0) ? 1 : (double) completed.get() / total;
+		}
+
+		/**
+		 * Works out how many elements will be handled in total by the tasks covering <code>rows[low..high)</code>.
+		 */
+		private long work(int low, int high) {
+			int length = high - low;
+			if (length <= PARALLEL_SORT_THRESHOLD)
+				return length;
+			int mid = (low + high) >>> 1;
+			return work(low, mid) + work(mid, high) + length;
+		}
+
+		private class SortTask extends RecursiveAction {
+
+			private static final long serialVersionUID = 1L;
+			private final int[] src;
+			private final int[] dest;
+			private final int low;
+			private final int high;
+
+			SortTask(int[] src, int[] dest, int low, int high) {
+				this.src = src;
+				this.dest = dest;
+				this.low = low;
+				this.high = high;
+			}
+
+			protected void compute() {
+				if (cancelled)
+					return;
+
+				int length = high - low;
+				if (length <= PARALLEL_SORT_THRESHOLD) {
+					mergeSort(src, dest, low, high, comparator);
+				} else {
+					int mid = (low + high) >>> 1;
+					invokeAll(new SortTask(dest, src, low, mid), new SortTask(dest, src, mid, high));
+					if (cancelled)
+						return;
+					merge(src, dest, low, mid, high, comparator);
+				}
+				completed.addAndGet(length);
+			}
+
+		}
+
+	}
+
+}
@@ -1,19 +1,29 @@
 package js;
 
 
+import java.awt.Component;
 import java.awt.Font;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.awt.event.KeyEvent;
 import java.awt.event.KeyListener;
 import java.util.Collections;
 import java.util.Vector;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
 
-import javax.swing.DefaultListModel;
 import javax.swing.JFrame;
 import javax.swing.JList;
 import javax.swing.JScrollPane;
 import javax.swing.JTextField;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
 import javax.swing.event.ListSelectionEvent;
 import javax.swing.event.ListSelectionListener;
 
@@ -22,10 +32,16 @@ import javax.swing.event.ListSelectionListener;
  * An extension to JTextField which provides a suggestion list and the ability to set a maximum entry length. Suggestions are stored in a list, and
  * as the user types in the text field, the entered text is compared to words and phrases in the suggestion list. Any words from the list containing
  * the string entered are displayed below the text field as suggestions. The user can then press <code>Return</code> to set the text field's text to
- * the word or phrase being suggested.
+ * the word or phrase being suggested.<br><br>
+ * 
+ * The suggestion list is indexed, so finding the suggestions which match the entered text takes about as long as listing them,
+ * however many suggestions there are. Suggestions are found on a background thread once the user pauses typing, so typing is
+ * never held up, and only the best matches are shown: those starting with the entered text first, then those chosen most
+ * often, then the shortest. See <code>setMaximumSuggestions()</code> and <code>setSuggestionDelay()</code>. The suggestion list
+ * only ever draws the rows which can be seen, so even showing every match stays quick.
  * 
  * @author Josh Sunshine
- * @version 1.0
+ * @version 1.3.2
  */
 public class JSTextField extends JTextField implements KeyListener, FocusListener, ListSelectionListener {
 	
@@ -33,10 +49,19 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	private int maximumChars = 9999;
 	private JFrame suggestionFrame;
 	private JScrollPane suggestionScroller;
-	private JList suggestionList;
+	private JList<String> suggestionList;
 	private Vector<String> suggestionVector;
+	private JSSuggestionIndex suggestionIndex;
+	private Timer suggestionTimer;
+	private final AtomicInteger suggestionSearch = new AtomicInteger();
+	private Future<?> pendingSearch;
+	/** The text the suggestions in the list were found for. **/
+	private String shownText = "";
+	private int maximumSuggestions = 50;
+	
+	private static ExecutorService suggestionExecutor;
 	private boolean shouldShowSuggestions;
-	private DefaultListModel listModel;
+	private JSSuggestionListModel listModel;
 	private int suggestionType;
 	
 	public static final int ENTIRE_WORD = 0;
@@ -85,14 +110,25 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 		suggestionFrame.setFocusableWindowState(false);
 		suggestionFrame.setUndecorated(true);
 		
-		listModel = new DefaultListModel();
-		suggestionList = new JList(listModel);
+		listModel = new JSSuggestionListModel();
+		suggestionList = new JList<String>(listModel);
 		suggestionList.addListSelectionListener(this);
+		// with fixed cell sizes the list never has to measure every row; cells fill the width of the popup
+		suggestionList.setFixedCellWidth(0);
+		updateCellHeight();
 		
 		suggestionScroller = new JScrollPane(suggestionList);
 		suggestionFrame.add(suggestionScroller);
 		
 		suggestionVector = new Vector<String>();
+		suggestionIndex = new JSSuggestionIndex(suggestionVector);
+		
+		suggestionTimer = new Timer(100, new ActionListener() {
+			public void actionPerformed(ActionEvent event) {
+				startSuggestionSearch();
+			}
+		});
+		suggestionTimer.setRepeats(false);
 	}
 	
 	private void showSuggestionList() {
@@ -105,31 +141,203 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 		suggestionFrame.setVisible(false);
 	}
 	
+	/**
+	 * Waits for the user to stop typing before searching the suggestion list, or clears the suggestions straight away if
+	 * the text field is empty.
+	 */
 	private void updateSuggestions() {
-		String text = this.getText();
-		if (text.length() > 0) {
+		if (this.getText().length() > 0) {
+			suggestionTimer.restart();
+		} else {
+			cancelSuggestions();
 			listModel.clear();
-			for (String listItem : suggestionVector) {
-				if (this.suggestionType == ENTIRE_WORD) {
-					if (listItem.toLowerCase().contains(text.toLowerCase())) {
-						listModel.addElement(listItem);
+			shownText = "";
+			hideSuggestionList();
+		}
+	}
+	
+	/**
+	 * Searches the suggestion list on a background thread, abandoning any search which is still running.
+	 */
+	private void startSuggestionSearch() {
+		final String text = this.getText();
+		final int type = this.suggestionType;
+		final int limit = this.maximumSuggestions;
+		final int search = suggestionSearch.incrementAndGet();
+		if (pendingSearch != null)
+			pendingSearch.cancel(false);
+		
+		pendingSearch = getSuggestionExecutor().submit(new Runnable() {
+			public void run() {
+				BooleanSupplier cancelled = new BooleanSupplier() {
+					public boolean getAsBoolean() {
+						return suggestionSearch.get() != search;
 					}
-				} else {
-					if (text.length() <= listItem.length()) {
-						if (listItem.toLowerCase().substring(0, text.length()).contains(text.toLowerCase())) {
-							listModel.addElement(listItem);
-						}
+				};
+				final int[] best;
+				final String[] suggestions;
+				synchronized (suggestionIndex) {
+					best = suggestionIndex.findBest(text, type, limit, cancelled);
+					suggestions = suggestionIndex.getSuggestions();
+				}
+				if (best == null || cancelled.getAsBoolean())
+					return;
+				
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						showSuggestions(text, suggestions, best, search);
+					}
+				});
+			}
+		});
+	}
+	
+	/**
+	 * Replaces the suggestions shown with the results of a search, unless a newer search has been started since.
+	 */
+	private void showSuggestions(String text, String[] suggestions, int[] matches, int search) {
+		if (suggestionSearch.get() != search)
+			return;
+		suggestionList.clearSelection();
+		listModel.setMatches(suggestions, matches);
+		shownText = text;
+		if (shouldShowSuggestions && matches.length > 0 && this.isShowing())
+			showSuggestionList();
+		else
+			hideSuggestionList();
+	}
+	
+	/**
+	 * Stops any search which is waiting to start or still running from showing its results.
+	 */
+	private void cancelSuggestions() {
+		suggestionTimer.stop();
+		suggestionSearch.incrementAndGet();
+		if (pendingSearch != null) {
+			pendingSearch.cancel(false);
+			pendingSearch = null;
+		}
+	}
+	
+	/**
+	 * Chooses the best suggestion for the text currently in the text field. If the suggestions shown were found for
+	 * earlier text, because the user hasn't paused typing yet, the best suggestion is picked from them when they are
+	 * sure to include it, and otherwise searched for in the background and chosen once it is found.
+	 */
+	private void chooseBestSuggestion() {
+		final String text = this.getText();
+		if (! shouldShowSuggestions || text.equals(shownText)) {
+			if (listModel.getSize() > 0)
+				chooseSuggestion(listModel.getElementAt(0));
+			return;
+		}
+		
+		cancelSuggestions();
+		if (text.length() == 0)
+			return;
+		int shown = findShownSuggestion(text);
+		if (shown >= 0)
+			chooseSuggestion(listModel.getElementAt(shown));
+		if (shown != -2)
+			return;
+		
+		final int type = this.suggestionType;
+		final int search = suggestionSearch.get();
+		pendingSearch = getSuggestionExecutor().submit(new Runnable() {
+			public void run() {
+				BooleanSupplier cancelled = new BooleanSupplier() {
+					public boolean getAsBoolean() {
+						return suggestionSearch.get() != search;
 					}
+				};
+				final int[] best;
+				final String[] suggestions;
+				synchronized (suggestionIndex) {
+					best = suggestionIndex.findBest(text, type, 1, cancelled);
+					suggestions = suggestionIndex.getSuggestions();
 				}
+				if (best == null || best.length == 0 || cancelled.getAsBoolean())
+					return;
+				
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						if (suggestionSearch.get() == search && getText().equals(text))
+							chooseSuggestion(suggestions[best[0]]);
+					}
+				});
 			}
-			if (listModel.getSize() == 0) {
-				hideSuggestionList();
+		});
+	}
+	
+	/**
+	 * Finds the best suggestion for the text among the suggestions shown, which were found for earlier text. This only
+	 * works if the text starts with the earlier text, since every match for the text is then a match for the earlier text.
+	 * Matches starting with the text were ranked in the same order for the earlier text, so the first of them shown is the
+	 * best; other matches are only ranked in the same order if they all did or all didn't start with the earlier text.
+	 * 
+	 * @return the position of the best suggestion in the list, <code>-1</code> if no suggestion matches, or <code>-2</code>
+	 * if the best suggestion might not be among those shown.
+	 */
+	private int findShownSuggestion(String text) {
+		String query = text.toLowerCase();
+		String earlier = shownText.toLowerCase();
+		if (earlier.length() == 0 || ! query.startsWith(earlier))
+			return -2;
+		
+		int containing = -1;
+		int containingOnly = -1;
+		for (int i = 0; i < listModel.getSize(); i ++) {
+			String suggestion = listModel.getElementAt(i).toLowerCase();
+			if (suggestion.startsWith(query))
+				return i;
+			if (suggestionType == ENTIRE_WORD && suggestion.contains(query)) {
+				if (suggestion.startsWith(earlier)) {
+					if (containing < 0)
+						containing = i;
+				} else if (containingOnly < 0) {
+					containingOnly = i;
+				}
 			}
 		}
-		else {
-			listModel.clear();
-			hideSuggestionList();
+		// a suggestion which wasn't shown could still start with the text, unless every match was shown
+		boolean complete = (maximumSuggestions <= 0 || listModel.getSize() < maximumSuggestions);
+		if (! complete || (containing >= 0 && containingOnly >= 0))
+			return -2;
+		return Math.max(containing, containingOnly);
+	}
+	
+	/**
+	 * Sets the text field's text to a suggestion, and counts the suggestion as chosen so it is ranked higher in future.
+	 */
+	private void chooseSuggestion(final String suggestion) {
+		cancelSuggestions();
+		this.setText(suggestion);
+		getSuggestionExecutor().execute(new Runnable() {
+			public void run() {
+				suggestionIndex.suggestionUsed(suggestion);
+			}
+		});
+	}
+	
+	/**
+	 * Fixes the height of the rows of the suggestion list to the height of a row of text in the list's font.
+	 */
+	private void updateCellHeight() {
+		Component cell = suggestionList.getCellRenderer().getListCellRendererComponent(suggestionList, "Xg", 0, false, false);
+		suggestionList.setFixedCellHeight(cell.getPreferredSize().height);
+	}
+	
+	private static synchronized ExecutorService getSuggestionExecutor() {
+		if (suggestionExecutor == null) {
+			suggestionExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "JSTextField suggestions");
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
 		}
+		return suggestionExecutor;
 	}
 	
 	/**
@@ -141,6 +349,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 		for (int i = 0; i < suggestions.length; i ++) {
 			suggestionVector.add(suggestions[i]);
 		}
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -152,6 +361,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 		for (String s : suggestions) {
 			suggestionVector.add(s);
 		}
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -161,6 +371,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	 */
 	public void addSuggestion(String suggestion) {
 		suggestionVector.add(suggestion);
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -191,6 +402,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	 */
 	public void sortSuggestions() {
 		Collections.sort(suggestionVector);
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -198,6 +410,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	 */
 	public void removeAllSuggestions() {
 		suggestionVector.removeAllElements();
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -207,6 +420,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	 */
 	public void removeSuggestion(int index) {
 		suggestionVector.remove(index);
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -220,6 +434,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 				suggestionVector.remove(i);
 			}
 		}
+		suggestionIndex.suggestionsChanged();
 	}
 	
 	/**
@@ -247,6 +462,7 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	 */
 	public void setListFont(Font font) {
 		suggestionList.setFont(font);
+		updateCellHeight();
 	}
 	
 	/**
@@ -258,6 +474,34 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	public void setSuggestionType(int type) {
 		this.suggestionType = type;
 	}
+	
+	/**
+	 * Sets the greatest number of suggestions shown at once. Only the best matches are shown: those starting with the entered text
+	 * first, then those chosen most often, then the shortest. The default is 50.
+	 * 
+	 * @param maximumSuggestions the greatest number of suggestions to show, or <code>0</code> to show every match
+	 */
+	public void setMaximumSuggestions(int maximumSuggestions) {
+		this.maximumSuggestions = maximumSuggestions;
+	}
+	
+	/**
+	 * Determines the greatest number of suggestions shown at once.
+	 * 
+	 * @return the greatest number of suggestions shown, or <code>0</code> if every match is shown
+	 */
+	public int getMaximumSuggestions() {
+		return this.maximumSuggestions;
+	}
+	
+	/**
+	 * Sets how long the user must pause typing before the suggestion list is searched. The default is 100 milliseconds.
+	 * 
+	 * @param milliseconds the pause before searching, in milliseconds
+	 */
+	public void setSuggestionDelay(int milliseconds) {
+		suggestionTimer.setInitialDelay(milliseconds);
+	}
 
 	public void keyPressed(KeyEvent event) {
 		
@@ -265,17 +509,15 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 
 	public void keyReleased(KeyEvent event) {
 		if (event.getKeyChar() == KeyEvent.VK_ENTER) {
-			this.setText(listModel.get(0).toString());
+			chooseBestSuggestion();
 			hideSuggestionList();
 		}
 		else if (event.getKeyChar() == KeyEvent.VK_ESCAPE) {
+			cancelSuggestions();
 			hideSuggestionList();
 		}
 		else if (shouldShowSuggestions && event.getModifiers() == 0) {
 			updateSuggestions();
-			if (listModel.getSize() > 0) {
-				showSuggestionList();
-			}
 		}
 	}
 
@@ -290,12 +532,13 @@ public class JSTextField extends JTextField implements KeyListener, FocusListene
 	}
 
 	public void focusLost(FocusEvent event) {
+		cancelSuggestions();
 		hideSuggestionList();
 	}
 
 	public void valueChanged(ListSelectionEvent event) {
 		if (suggestionList.getSelectedValue() != null) {
-			this.setText(suggestionList.getSelectedValue().toString());
+			chooseSuggestion(suggestionList.getSelectedValue().toString());
 		}
 		hideSuggestionList();
 	}
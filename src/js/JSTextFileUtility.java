@@ -2,28 +2,75 @@ package js;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.Closeable;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Vector;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
- * JSTextFileUtility is a class which provides simple read/write access to a plain text file stored on disk.
+ * JSTextFileUtility is a class which provides simple read/write access to a plain text file stored on disk.<br><br>
+ * 
+ * Appending to a file only writes the new text to the end of it, and the file is kept open between appends, so
+ * appending costs the same however large the file is. How soon appended text reaches the disk is decided by the
+ * flush policy; see <code>setFlushPolicy()</code>. Call <code>close()</code> once the file is no longer needed.<br><br>
+ * 
+ * To process every line of a large file, use <code>lines()</code> or <code>forEachLineParallel()</code>, which read the
+ * file straight from memory and can share the work between every processor.<br><br>
+ * 
+ * Replacing the contents of a file normally empties it and then writes the new contents, so a crash part way
+ * through leaves a partly written file. Call <code>setAtomicReplace(true)</code> to write the new contents to a
+ * separate file first, which then takes the original's place in a single step.
  * 
  * @author Josh
+ * 
+ * @version 1.3.1
  */
-public class JSTextFileUtility {
+public class JSTextFileUtility implements Closeable {
 
 	public static final String SPACE = " ";
 	public static final String NEW_LINE = "\n";
 	
+	/** Appended text is written to the file before <code>appendToFile()</code> returns, although the operating
+	 * system may not have saved it to the disk yet. This is the default policy. **/
+	public static final int FLUSH_ON_APPEND = 0;
+	/** Appended text is written to the file and saved to the disk before <code>appendToFile()</code> returns. This
+	 * is the safest policy, but also the slowest. **/
+	public static final int SYNC_ON_APPEND = 1;
+	/** Appended text is kept in memory until enough has built up, or until <code>flush()</code> or <code>close()</code>
+	 * is called. This is the fastest policy, but text which has not been flushed is lost if the program crashes. **/
+	public static final int FLUSH_WHEN_FULL = 2;
+	
+	private static final int APPEND_BUFFER_SIZE = 64 * 1024;
+	
 	BufferedReader reader;
 	BufferedWriter writer;
 	String filename;
 	Vector<String> contents;
 	
+	private FileChannel appendChannel;
+	private ByteBuffer appendBuffer;
+	private int flushPolicy = FLUSH_ON_APPEND;
+	private boolean atomicReplace;
+	
 	/**
 	 * Creates a new <code>JSTextFileUtility</code> to deal with the specified file.
 	 * 
@@ -41,6 +88,7 @@ public class JSTextFileUtility {
 	 * @return the contents of this <code>JSTextFileUtility</code>'s file as a String.
 	 */
 	public String getContentsOfFile() {
+		flush();
 		String contents = "";
 		if (openForReading()) {
 			String line = "";
@@ -66,15 +114,13 @@ public class JSTextFileUtility {
 	 * @return the contents of this <code>JSTextFileUtility</code>'s file as an array of <code>String</code>s.
 	 */
 	public String[] getContentsOfFileAsArray() {
-		String[] contents = new String[0];
+		flush();
+		Vector<String> lines = new Vector<String>();
 		if (openForReading()) {
 			String line = "";
 			try {
 				while ((line = reader.readLine()) != null) {
-					String[] temp = new String[contents.length + 1];
-					System.arraycopy(contents, 0, temp, 0, contents.length);
-					temp[contents.length] = line;
-					contents = temp;
+					lines.add(line);
 				}
 			} catch (IOException e) {
 				e.printStackTrace();
@@ -82,7 +128,7 @@ public class JSTextFileUtility {
 				closeReadAccess();
 			}
 		}
-		return contents;
+		return lines.toArray(new String[lines.size()]);
 	}
 	
 	/**
@@ -92,6 +138,7 @@ public class JSTextFileUtility {
 	 * @return the contents of this <code>JSTextFileUtility</code>'s file as a <code>Vector</code>.
 	 */
 	public Vector<String> getContentsOfFileAsVector() {
+		flush();
 		contents = new Vector<String>();
 		if (openForReading()) {
 			String line = "";
@@ -108,45 +155,113 @@ public class JSTextFileUtility {
 		return contents;
 	}
 	
+	/**
+	 * Opens this <code>JSTextFileUtility</code>'s file for reading a line at a time, or by line number, without reading
+	 * the whole file into memory. This is much quicker than the methods above for very large files.
+	 * 
+	 * @return a <code>JSLineReader</code> for this <code>JSTextFileUtility</code>'s file, which should be closed once finished with.
+	 */
+	public JSLineReader getLineReader() {
+		flush();
+		return new JSLineReader(filename);
+	}
+	
+	/**
+	 * Returns a <code>Stream</code> of the lines of this <code>JSTextFileUtility</code>'s file. The file is mapped into memory
+	 * and each line is only decoded when the stream reaches it. If the stream is made parallel with <code>parallel()</code>, the
+	 * file is split between threads at line breaks, so the lines can be processed on every processor at once.<br><br>
+	 * 
+	 * The stream reads the file as it was when this method was called, and the file should not be changed until the stream
+	 * has finished.
+	 * 
+	 * @return a sequential <code>Stream</code> of the lines of the file, without their line breaks.
+	 */
+	public Stream<CharSequence> lines() {
+		flush();
+		MappedByteBuffer[] regions;
+		long size;
+		try {
+			FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+			try {
+				size = channel.size();
+				regions = JSLineReader.map(channel, size);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return Stream.empty();
+		}
+		return StreamSupport.stream(new JSLineSpliterator(regions, 0, size, Charset.defaultCharset()), false);
+	}
+	
+	/**
+	 * Performs an action on every line of this <code>JSTextFileUtility</code>'s file, using as many threads as there are
+	 * processors. The lines are passed to the action in no particular order, and the action may be called by several threads
+	 * at once, so it must be thread safe.
+	 * 
+	 * @param action the action to perform on each line
+	 */
+	public void forEachLineParallel(Consumer<? super CharSequence> action) {
+		forEachLineParallel(action, false);
+	}
+	
+	/**
+	 * Performs an action on every line of this <code>JSTextFileUtility</code>'s file, using as many threads as there are
+	 * processors.<br><br>
+	 * 
+	 * If <code>inOrder</code> is <code>true</code>, the action is called for one line at a time, in the order the lines appear
+	 * in the file, although the lines are still read and decoded in parallel. Otherwise the lines are passed to the action in no
+	 * particular order, possibly from several threads at once, which is faster.
+	 * 
+	 * @param action the action to perform on each line
+	 * @param inOrder whether the action must be called for the lines in the order they appear in the file
+	 */
+	public void forEachLineParallel(Consumer<? super CharSequence> action, boolean inOrder) {
+		if (inOrder)
+			lines().parallel().forEachOrdered(action);
+		else
+			lines().parallel().forEach(action);
+	}
+	
 	/**
 	 * Deletes the contents of this <code>JSTextFileUtility</code>'s file and replaces them with the specified text.
+	 * See <code>setAtomicReplace()</code> for how the file is replaced.
 	 * 
 	 * @param contents the new contents to add to the file
 	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
 	 */
-	public boolean replaceContentsOfFile(String contents) {
-		if (openForWriting()) {
-			try {
+	public boolean replaceContentsOfFile(final String contents) {
+		return replaceContents(new Consumer<PrintWriter>() {
+			public void accept(PrintWriter writer) {
 				writer.write(contents);
-				writer.flush();
-				return true;
-			} catch (IOException e) {
-				e.printStackTrace();
-				return false;
-			} finally {
-				closeWriteAccess();
 			}
-		} else
-			return false;
+		});
 	}
 	
 	/**
-	 * Appends the specified text to the end of this <code>JSTextFileUtility</code>'s file.
+	 * Replaces the contents of this <code>JSTextFileUtility</code>'s file with whatever the specified action writes to
+	 * the <code>PrintWriter</code> it is given, so very large contents can be written a piece at a time rather than being
+	 * built into one <code>String</code> first. See <code>setAtomicReplace()</code> for how the file is replaced.<br><br>
 	 * 
-	 * @param stringToAppend the text to append to the file
+	 * If the action throws an exception, the exception is passed on to the caller. When atomic replacement is turned on,
+	 * the file is then left exactly as it was.
+	 * 
+	 * @param writeContents the action which writes the new contents of the file
 	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
 	 */
-	public boolean appendToFile(String stringToAppend) {
-		String contents = getContentsOfFile();
-		contents += stringToAppend;
+	public synchronized boolean replaceContents(Consumer<? super PrintWriter> writeContents) {
+		if (! writeAppendBuffer())
+			return false;
+		if (atomicReplace)
+			return replaceAtomically(writeContents);
+		
 		if (openForWriting()) {
 			try {
-				writer.write(contents);
-				writer.flush();
-				return true;
-			} catch (IOException e) {
-				e.printStackTrace();
-				return false;
+				PrintWriter printWriter = new PrintWriter(writer);
+				writeContents.accept(printWriter);
+				printWriter.flush();
+				return ! printWriter.checkError();
 			} finally {
 				closeWriteAccess();
 			}
@@ -154,6 +269,44 @@ public class JSTextFileUtility {
 			return false;
 	}
 	
+	/**
+	 * Sets whether the contents of the file are replaced atomically.<br><br>
+	 * 
+	 * When turned off (the default), the file is emptied and the new contents are written to it, so other programs
+	 * can see the file partly written, and a crash part way through leaves it that way.<br><br>
+	 * 
+	 * When turned on, the new contents are written to a temporary file in the same directory and saved to the disk,
+	 * and the temporary file is then renamed over the original. Other programs see either the old contents or the new
+	 * contents, never a mixture, and a crash leaves the old contents in place. The replaced file is a new file, so
+	 * anything holding the old file open keeps seeing the old contents. On file systems which can't rename a file
+	 * atomically, the temporary file is moved over the original as well as they allow.
+	 * 
+	 * @param atomicReplace whether the contents of the file should be replaced atomically
+	 */
+	public void setAtomicReplace(boolean atomicReplace) {
+		this.atomicReplace = atomicReplace;
+	}
+	
+	/**
+	 * Returns whether the contents of the file are replaced atomically.
+	 * 
+	 * @return <code>true</code> if the contents of the file are replaced atomically; <code>false</code> otherwise.
+	 */
+	public boolean isAtomicReplace() {
+		return atomicReplace;
+	}
+	
+	/**
+	 * Appends the specified text to the end of this <code>JSTextFileUtility</code>'s file. Only the new text is written;
+	 * the rest of the file is not read or rewritten.
+	 * 
+	 * @param stringToAppend the text to append to the file
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public synchronized boolean appendToFile(String stringToAppend) {
+		return appendBytes(stringToAppend.getBytes(Charset.defaultCharset()));
+	}
+	
 	/**
 	 * Appends the specified text to the end of this <code>JSTextFileUtility</code>'s file, after adding the specified separator.<br><br>
 	 * 
@@ -168,6 +321,186 @@ public class JSTextFileUtility {
 		return appendToFile(separator + stringToAppend);
 	}
 	
+	/**
+	 * Sets how soon appended text is written to the file. The policy can be changed at any time; any text being held
+	 * in memory is written when it is.
+	 * 
+	 * @param flushPolicy either <code>FLUSH_ON_APPEND</code>, <code>SYNC_ON_APPEND</code> or <code>FLUSH_WHEN_FULL</code>
+	 */
+	public synchronized void setFlushPolicy(int flushPolicy) {
+		this.flushPolicy = flushPolicy;
+		if (flushPolicy != FLUSH_WHEN_FULL)
+			writeAppendBuffer();
+	}
+	
+	/**
+	 * Returns how soon appended text is written to the file.
+	 * 
+	 * @return either <code>FLUSH_ON_APPEND</code>, <code>SYNC_ON_APPEND</code> or <code>FLUSH_WHEN_FULL</code>
+	 */
+	public int getFlushPolicy() {
+		return flushPolicy;
+	}
+	
+	/**
+	 * Writes any appended text which is being held in memory to the file.
+	 * 
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public synchronized boolean flush() {
+		return writeAppendBuffer();
+	}
+	
+	/**
+	 * Writes any appended text which is being held in memory to the file, and waits until the operating system has
+	 * saved the file to the disk.
+	 * 
+	 * @return <code>true</code> if the operation was successful; <code>false</code> otherwise.
+	 */
+	public synchronized boolean sync() {
+		if (! writeAppendBuffer())
+			return false;
+		if (appendChannel == null)
+			return true;
+		try {
+			appendChannel.force(false);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Writes any appended text which is being held in memory to the file and closes it. The file is opened again
+	 * if more text is appended later.
+	 */
+	public void close() {
+		closeAppendChannel();
+	}
+	
+	/**
+	 * Writes any buffered text and closes the channel used for appending, if it is open.
+	 */
+	synchronized void closeAppendChannel() {
+		if (appendChannel == null)
+			return;
+		writeAppendBuffer();
+		try {
+			appendChannel.close();
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		appendChannel = null;
+		appendBuffer = null;
+	}
+	
+	/**
+	 * Appends bytes to the end of the file according to the flush policy, opening the file for appending if needed.
+	 */
+	synchronized boolean appendBytes(byte[] bytes) {
+		if (! openForAppending())
+			return false;
+		
+		if (flushPolicy == FLUSH_WHEN_FULL && bytes.length <= appendBuffer.capacity()) {
+			if (bytes.length > appendBuffer.remaining() && ! writeAppendBuffer())
+				return false;
+			appendBuffer.put(bytes);
+			return true;
+		}
+		
+		if (! writeAppendBuffer())
+			return false;
+		try {
+			ByteBuffer buffer = ByteBuffer.wrap(bytes);
+			while (buffer.hasRemaining())
+				appendChannel.write(buffer);
+			if (flushPolicy == SYNC_ON_APPEND)
+				appendChannel.force(false);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
+	/**
+	 * Writes the new contents of the file to a temporary file beside it, saves it to the disk and renames it over the file.
+	 */
+	private boolean replaceAtomically(Consumer<? super PrintWriter> writeContents) {
+		closeAppendChannel();
+		Path target = Paths.get(filename).toAbsolutePath();
+		Path directory = target.getParent();
+		Path temporary = null;
+		try {
+			temporary = Files.createTempFile(directory, "." + target.getFileName() + ".", ".tmp");
+			copyPermissions(target, temporary);
+			
+			FileChannel channel = FileChannel.open(temporary, StandardOpenOption.WRITE);
+			try {
+				PrintWriter printWriter = new PrintWriter(new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(channel), Charset.defaultCharset())));
+				writeContents.accept(printWriter);
+				printWriter.flush();
+				if (printWriter.checkError())
+					return false;
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+			
+			try {
+				Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+			}
+			temporary = null;
+			syncDirectory(directory);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			if (temporary != null) {
+				try {
+					Files.deleteIfExists(temporary);
+				} catch (IOException e) {
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Gives the temporary file the same permissions as the file it is replacing, on systems which support them.
+	 */
+	private void copyPermissions(Path from, Path to) {
+		try {
+			if (Files.exists(from))
+				Files.setPosixFilePermissions(to, Files.getPosixFilePermissions(from));
+		} catch (UnsupportedOperationException e) {
+			// Windows has no POSIX permissions, and the new file already has the usual ones for the directory
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+	
+	/**
+	 * Saves a directory's list of files to the disk, so a renamed file keeps its new name after a crash. Not every
+	 * system allows directories to be opened, in which case the rename is left to the operating system.
+	 */
+	private void syncDirectory(Path directory) {
+		try {
+			FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ);
+			try {
+				channel.force(true);
+			} finally {
+				channel.close();
+			}
+		} catch (IOException e) {
+			// directories can't be opened on Windows; the file itself is already saved, so only the rename may be lost
+		}
+	}
+	
 	private boolean fileExists(String filename) {
 		File file = new File(filename);
 		return file.exists();
@@ -214,6 +547,35 @@ public class JSTextFileUtility {
 		}
 	}
 	
+	private boolean writeAppendBuffer() {
+		if (appendBuffer == null || appendBuffer.position() == 0)
+			return true;
+		try {
+			appendBuffer.flip();
+			while (appendBuffer.hasRemaining())
+				appendChannel.write(appendBuffer);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		} finally {
+			appendBuffer.clear();
+		}
+	}
+	
+	private boolean openForAppending() {
+		if (appendChannel != null)
+			return true;
+		try {
+			appendChannel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+			appendBuffer = ByteBuffer.allocate(APPEND_BUFFER_SIZE);
+			return true;
+		} catch (IOException e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+	
 	private boolean openForWriting() {
 		try {
 			writer = new BufferedWriter(new FileWriter(filename));
@@ -0,0 +1,258 @@
+package js;
+
+import java.awt.AlphaComposite;
+import java.awt.GraphicsConfiguration;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.Transparency;
+import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * JSTileCache keeps a drawing which is slow to produce, such as a page in {@link JSPrintPreview}, as a grid of images
+ * at each scale it has been shown at. Repainting copies the tiles which are on screen instead of drawing everything
+ * again. Tiles which have never been shown at that scale, or have been thrown away, are drawn together in a single
+ * pass and then cut apart.<br><br>
+ *
+ * Tiles are kept until the memory they use exceeds the cache's budget, at which point the ones shown least recently
+ * are discarded. Every tile is discarded when the drawing changes, which the owner signals by passing a different
+ * modification count to <code>paint</code>. Tiles drawn while an image is still loading are shown but not kept, so
+ * the image appears once it has loaded.
+ *
+ * @author Josh Sunshine
+ *
+ * @version 1.1
+ */
+class JSTileCache {
+
+	/** The width and height of a tile, in device pixels. **/
+	static final int TILE_SIZE = 256;
+
+	/**
+	 * Draws the content of the cache when tiles are missing.
+	 */
+	interface Painter {
+		/**
+		 * Draws the content, scaled by the specified factor, onto the graphics. The graphics is already translated to
+		 * the area being drawn.
+		 *
+		 * @return <code>true</code> if everything was drawn; <code>false</code> if anything, such as an image which is
+		 * still loading, will look different when drawn again later.
+		 */
+		boolean paint(Graphics2D g2D, double scale);
+	}
+
+	private Painter painter;
+	private LinkedHashMap<Tile, BufferedImage> tiles = new LinkedHashMap<Tile, BufferedImage>(64, 0.75f, true);
+	private long memoryBudget;
+	private long memoryUsed;
+	private int modificationCount;
+
+	JSTileCache(Painter painter, long memoryBudget) {
+		this.painter = painter;
+		this.memoryBudget = memoryBudget;
+	}
+
+	void setMemoryBudget(long memoryBudget) {
+		this.memoryBudget = memoryBudget;
+		trim();
+	}
+
+	long getMemoryBudget() {
+		return memoryBudget;
+	}
+
+	/**
+	 * Discards every tile.
+	 */
+	void clear() {
+		for (BufferedImage image : tiles.values())
+			image.flush();
+		tiles.clear();
+		memoryUsed = 0;
+	}
+
+	/**
+	 * Paints the part of the content inside the graphics' clip, drawing any tiles which aren't already cached.
+	 *
+	 * @param g2D the graphics to paint onto
+	 * @param scale the scale the content should be shown at
+	 * @param variant identifies anything besides the scale which changes how the content looks, so each look gets its
+	 * own tiles
+	 * @param modificationCount a number which changes whenever the content does
+	 * @param width the width of the content at a scale of 1
+	 * @param height the height of the content at a scale of 1
+	 */
+	void paint(Graphics2D g2D, double scale, int variant, int modificationCount, int width, int height) {
+		if (modificationCount != this.modificationCount) {
+			clear();
+			this.modificationCount = modificationCount;
+		}
+
+		AffineTransform transform = g2D.getTransform();
+		if (memoryBudget == 0 || (transform.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE)) != 0) {
+			// Nothing can be kept, or tiles can't be copied onto a rotated or stretched graphics pixel for pixel
+			painter.paint(g2D, scale);
+			return;
+		}
+
+		double deviceScale = transform.getScaleX();
+		double tileScale = scale * deviceScale;
+		int contentWidth = (int) Math.ceil(width * tileScale);
+		int contentHeight = (int) Math.ceil(height * tileScale);
+
+		Rectangle clip = g2D.getClipBounds();
+		if (clip == null)
+			clip = new Rectangle(0, 0, (int) Math.ceil(width * scale), (int) Math.ceil(height * scale));
+		int left = Math.max(0, (int) Math.floor(clip.x * deviceScale));
+		int top = Math.max(0, (int) Math.floor(clip.y * deviceScale));
+		int right = Math.min(contentWidth, (int) Math.ceil((clip.x + clip.width) * deviceScale));
+		int bottom = Math.min(contentHeight, (int) Math.ceil((clip.y + clip.height) * deviceScale));
+		if (left >= right || top >= bottom)
+			return;
+		int firstColumn = left / TILE_SIZE;
+		int lastColumn = (right - 1) / TILE_SIZE;
+		int firstRow = top / TILE_SIZE;
+		int lastRow = (bottom - 1) / TILE_SIZE;
+
+		// Draw every missing tile in one pass, rather than drawing the whole content once for each of them
+		Rectangle missing = null;
+		for (int row = firstRow; row <= lastRow; row ++) {
+			for (int column = firstColumn; column <= lastColumn; column ++) {
+				if (! tiles.containsKey(new Tile(tileScale, variant, column, row))) {
+					Rectangle bounds = getTileBounds(column, row, contentWidth, contentHeight);
+					if (missing == null)
+						missing = bounds;
+					else
+						missing.add(bounds);
+				}
+			}
+		}
+		BufferedImage strip = null;
+		boolean complete = true;
+		if (missing != null) {
+			strip = createImage(g2D, missing.width, missing.height);
+			Graphics2D stripGraphics = strip.createGraphics();
+			try {
+				stripGraphics.setRenderingHints(g2D.getRenderingHints());
+				stripGraphics.translate(-missing.x, -missing.y);
+				complete = painter.paint(stripGraphics, tileScale);
+			} finally {
+				stripGraphics.dispose();
+			}
+		}
+
+		g2D.setTransform(AffineTransform.getTranslateInstance(transform.getTranslateX(), transform.getTranslateY()));
+		try {
+			for (int row = firstRow; row <= lastRow; row ++) {
+				for (int column = firstColumn; column <= lastColumn; column ++) {
+					Tile key = new Tile(tileScale, variant, column, row);
+					BufferedImage image = tiles.get(key);
+					if (image == null) {
+						Rectangle bounds = getTileBounds(column, row, contentWidth, contentHeight);
+						int x = bounds.x - missing.x;
+						int y = bounds.y - missing.y;
+						if (! complete) {
+							g2D.drawImage(strip, bounds.x, bounds.y, bounds.x + bounds.width, bounds.y + bounds.height,
+									x, y, x + bounds.width, y + bounds.height, null);
+							continue;
+						}
+						image = cutTile(g2D, strip, x, y, bounds.width, bounds.height);
+						tiles.put(key, image);
+						memoryUsed += memoryOf(image);
+					}
+					g2D.drawImage(image, column * TILE_SIZE, row * TILE_SIZE, null);
+				}
+			}
+		} finally {
+			g2D.setTransform(transform);
+		}
+		if (strip != null)
+			strip.flush();
+		trim();
+	}
+
+	/* Begin private methods */
+
+	private static Rectangle getTileBounds(int column, int row, int contentWidth, int contentHeight) {
+		int x = column * TILE_SIZE;
+		int y = row * TILE_SIZE;
+		return new Rectangle(x, y, Math.min(TILE_SIZE, contentWidth - x), Math.min(TILE_SIZE, contentHeight - y));
+	}
+
+	private static BufferedImage createImage(Graphics2D target, int width, int height) {
+		GraphicsConfiguration configuration = target.getDeviceConfiguration();
+		if (configuration != null)
+			return configuration.createCompatibleImage(width, height, Transparency.TRANSLUCENT);
+		return new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+	}
+
+	/**
+	 * Copies a tile out of the strip of missing tiles into an image of its own.
+	 */
+	private static BufferedImage cutTile(Graphics2D target, BufferedImage strip, int x, int y, int width, int height) {
+		BufferedImage image = createImage(target, width, height);
+		Graphics2D g2D = image.createGraphics();
+		try {
+			g2D.setComposite(AlphaComposite.Src);
+			g2D.drawImage(strip, -x, -y, null);
+		} finally {
+			g2D.dispose();
+		}
+		return image;
+	}
+
+	/**
+	 * Discards the least recently shown tiles until the cache fits within its budget.
+	 */
+	private void trim() {
+		Iterator<Map.Entry<Tile, BufferedImage>> eldest = tiles.entrySet().iterator();
+		while (memoryUsed > memoryBudget && eldest.hasNext()) {
+			BufferedImage image = eldest.next().getValue();
+			eldest.remove();
+			memoryUsed -= memoryOf(image);
+			image.flush();
+		}
+	}
+
+	private static long memoryOf(BufferedImage image) {
+		return (long) image.getWidth() * image.getHeight() * 4;
+	}
+
+	/* Begin internal classes */
+
+	private static class Tile {
+
+		private double scale;
+		private int variant;
+		private int column;
+		private int row;
+
+		private Tile(double scale, int variant, int column, int row) {
+			this.scale = scale;
+			this.variant = variant;
+			this.column = column;
+			this.row = row;
+		}
+
+		public boolean equals(Object object) {
+			if (!(object instanceof Tile))
+				return false;
+			Tile tile = (Tile) object;
+			return tile.scale == scale && tile.variant == variant && tile.column == column && tile.row == row;
+		}
+
+		public int hashCode() {
+			long bits = Double.doubleToLongBits(scale);
+			int hash = (int) (bits ^ (bits >>> 32));
+			hash = hash * 31 + variant;
+			hash = hash * 31 + column;
+			return hash * 31 + row;
+		}
+
+	}
+
+}
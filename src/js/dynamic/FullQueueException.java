@@ -0,0 +1,11 @@
+package js.dynamic;
+
+public class FullQueueException extends RuntimeException {
+
+	private static final long serialVersionUID = 5270871519624213164L;
+
+	public FullQueueException(String msg) {
+		super(msg);
+	}
+	
+}
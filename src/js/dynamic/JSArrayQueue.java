@@ -0,0 +1,126 @@
+package js.dynamic;
+
+import java.util.Arrays;
+
+/**
+ * A queue which stores its data items in a circular array rather than in a chain of nodes, so adding an item doesn't
+ * create any objects once the array is large enough. It follows the same First In, First Out principle as {@link JSQueue},
+ * and can be used in its place.<br><br>
+ * 
+ * The array doubles in size whenever it is full, and never shrinks. For a queue with a fixed capacity, use
+ * {@link JSBoundedQueue}.
+ * 
+ * @author Josh
+ * @version 1.0
+ *
+ */
+public class JSArrayQueue<E> {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	Object[] items;
+	private int head;
+	private int count;
+	
+	/**
+	 * Initialises a new queue containing no data items.
+	 */
+	public JSArrayQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Initialises a new queue containing no data items, with room for the specified number of items before it has to grow.
+	 * 
+	 * @param initialCapacity - The number of data items the queue can hold before it has to grow.
+	 */
+	public JSArrayQueue(int initialCapacity) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("The capacity of a queue must be at least 1.");
+		items = new Object[initialCapacity];
+	}
+	
+	/**
+	 * Determines whether the queue is currently empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return (count == 0);
+	}
+	
+	/**
+	 * Determines how many data items are currently in the queue.
+	 * 
+	 * @return The number of data items in the queue.
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Pulls the next data item from the front of the queue.
+	 * 
+	 * @return The data item from the front of the queue.
+	 */
+	@SuppressWarnings("unchecked")
+	public E pull() throws EmptyQueueException {
+		if (count == 0)
+			throw new EmptyQueueException("Tried to pull from an empty queue.");
+		E data = (E) items[head];
+		items[head] = null;
+		if (++ head == items.length)
+			head = 0;
+		count --;
+		return data;
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, making room for it if the queue is full.
+	 * 
+	 * @param data - The data to add to the queue.
+	 */
+	public void push(E data) {
+		if (count == items.length)
+			grow();
+		add(data);
+	}
+	
+	/**
+	 * Empties the queue of all data items.
+	 */
+	public void clear() {
+		int end = head + count;
+		if (end <= items.length) {
+			Arrays.fill(items, head, end, null);
+		} else {
+			Arrays.fill(items, head, items.length, null);
+			Arrays.fill(items, 0, end - items.length, null);
+		}
+		head = 0;
+		count = 0;
+	}
+	
+	/**
+	 * Adds a data item to the end of the queue, which must not be full.
+	 */
+	void add(E data) {
+		int tail = head + count;
+		if (tail >= items.length)
+			tail -= items.length;
+		items[tail] = data;
+		count ++;
+	}
+	
+	/* Begin private methods */
+	
+	private void grow() {
+		Object[] grown = new Object[Math.max(items.length * 2, items.length + 1)];
+		int firstPart = Math.min(count, items.length - head);
+		System.arraycopy(items, head, grown, 0, firstPart);
+		System.arraycopy(items, 0, grown, firstPart, count - firstPart);
+		items = grown;
+		head = 0;
+	}
+	
+}
@@ -0,0 +1,209 @@
+package js.dynamic;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A fixed-capacity queue which any number of threads can push to and pull from, and which can make a thread wait for
+ * an item to pull, or for room to push. It follows the same First In, First Out principle as {@link JSQueue}.<br><br>
+ * 
+ * <code>put()</code> waits while the queue is full, so threads producing items can't get too far ahead of the threads
+ * using them. <code>push()</code> and <code>pull()</code> behave as they do for {@link JSBoundedQueue}, throwing a
+ * {@link FullQueueException} or {@link EmptyQueueException} straight away if the queue is full or empty;
+ * <code>pull(timeout, unit)</code> waits for an item instead. The queue is guarded
+ * by a single lock, so when only one thread pushes and one thread pulls without needing to wait,
+ * {@link JSSingleProducerQueue} is faster.
+ * 
+ * @author Josh
+ * @version 1.0.1
+ *
+ */
+public class JSBlockingQueue<E> {
+
+	private final JSBoundedQueue<E> items;
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition notEmpty = lock.newCondition();
+	private final Condition notFull = lock.newCondition();
+	
+	/**
+	 * Initialises a new queue containing no data items, which can hold up to the specified number of items.
+	 * 
+	 * @param capacity - The greatest number of data items the queue can hold.
+	 */
+	public JSBlockingQueue(int capacity) {
+		items = new JSBoundedQueue<E>(capacity);
+	}
+	
+	/**
+	 * Determines whether the queue is currently empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return (size() == 0);
+	}
+	
+	/**
+	 * Determines how many data items are currently in the queue.
+	 * 
+	 * @return The number of data items in the queue.
+	 */
+	public int size() {
+		lock.lock();
+		try {
+			return items.size();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Determines how many more data items can be added to the queue before it is full.
+	 * 
+	 * @return The number of data items which can be added to the queue.
+	 */
+	public int remainingCapacity() {
+		lock.lock();
+		try {
+			return items.remainingCapacity();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Pulls the next data item from the front of the queue, without waiting.
+	 * 
+	 * @return The data item from the front of the queue.
+	 */
+	public E pull() throws EmptyQueueException {
+		lock.lock();
+		try {
+			E data = items.pull();
+			notFull.signal();
+			return data;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Pulls the next data item from the front of the queue, waiting up to the specified time for one to be pushed if the
+	 * queue is empty.
+	 * 
+	 * @param timeout - How long to wait for an item, in units of <code>unit</code>.
+	 * @param unit - The unit of <code>timeout</code>.
+	 * @return The data item from the front of the queue.
+	 * @throws EmptyQueueException if the queue is still empty once the time is up.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public E pull(long timeout, TimeUnit unit) throws EmptyQueueException, InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (items.isEmpty()) {
+				if (remaining <= 0)
+					throw new EmptyQueueException("Timed out waiting to pull from an empty queue.");
+				remaining = notEmpty.awaitNanos(remaining);
+			}
+			E data = items.pull();
+			notFull.signal();
+			return data;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, without waiting.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @throws FullQueueException if the queue is full.
+	 */
+	public void push(E data) throws FullQueueException {
+		lock.lock();
+		try {
+			items.push(data);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, waiting for room if the queue is full.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public void put(E data) throws InterruptedException {
+		lock.lockInterruptibly();
+		try {
+			while (items.isFull())
+				notFull.await();
+			items.add(data);
+			notEmpty.signal();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, unless the queue is full.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @return <code>true</code> if the item was added, <code>false</code> if the queue is full.
+	 */
+	public boolean offer(E data) {
+		lock.lock();
+		try {
+			if (! items.offer(data))
+				return false;
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, waiting up to the specified time for room if the queue is full.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @param timeout - How long to wait for room, in units of <code>unit</code>.
+	 * @param unit - The unit of <code>timeout</code>.
+	 * @return <code>true</code> if the item was added, <code>false</code> if the queue was still full once the time was up.
+	 * @throws InterruptedException if the thread is interrupted while waiting.
+	 */
+	public boolean offer(E data, long timeout, TimeUnit unit) throws InterruptedException {
+		long remaining = unit.toNanos(timeout);
+		lock.lockInterruptibly();
+		try {
+			while (items.isFull()) {
+				if (remaining <= 0)
+					return false;
+				remaining = notFull.awaitNanos(remaining);
+			}
+			items.add(data);
+			notEmpty.signal();
+			return true;
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+	/**
+	 * Empties the queue of all data items, letting any threads waiting to push carry on.
+	 */
+	public void clear() {
+		lock.lock();
+		try {
+			items.clear();
+			notFull.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+	
+}
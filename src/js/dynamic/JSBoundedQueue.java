@@ -0,0 +1,65 @@
+package js.dynamic;
+
+/**
+ * A {@link JSArrayQueue} which can only ever hold a fixed number of data items. Whatever is adding items to the queue
+ * can use <code>offer()</code> to find out when the queue is full, and wait for it to be emptied rather than letting it
+ * grow without limit.
+ * 
+ * @author Josh
+ * @version 1.0
+ *
+ */
+public class JSBoundedQueue<E> extends JSArrayQueue<E> {
+
+	/**
+	 * Initialises a new queue containing no data items, which can hold up to the specified number of items.
+	 * 
+	 * @param capacity - The greatest number of data items the queue can hold.
+	 */
+	public JSBoundedQueue(int capacity) {
+		super(capacity);
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @throws FullQueueException if the queue is full.
+	 */
+	public void push(E data) throws FullQueueException {
+		if (! offer(data))
+			throw new FullQueueException("Tried to push to a full queue.");
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, unless the queue is full.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @return <code>true</code> if the item was added, <code>false</code> if the queue is full.
+	 */
+	public boolean offer(E data) {
+		if (isFull())
+			return false;
+		add(data);
+		return true;
+	}
+	
+	/**
+	 * Determines whether the queue is holding as many data items as it can.
+	 * 
+	 * @return <code>true</code> if the queue is full, <code>false</code> otherwise.
+	 */
+	public boolean isFull() {
+		return (size() == items.length);
+	}
+	
+	/**
+	 * Determines how many more data items can be added to the queue before it is full.
+	 * 
+	 * @return The number of data items which can be added to the queue.
+	 */
+	public int remainingCapacity() {
+		return items.length - size();
+	}
+	
+}
@@ -0,0 +1,141 @@
+package js.dynamic;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+/**
+ * A queue which any number of threads can push to and pull from at the same time, without locking. It follows the same
+ * First In, First Out principle as {@link JSQueue}, and can be used in its place wherever items are handed between
+ * threads, such as from background threads to the event dispatch thread.<br><br>
+ * 
+ * The queue is a chain of nodes, like <code>JSQueue</code>, but the ends of the chain are moved with atomic
+ * compare-and-set operations (Michael and Scott's algorithm), so a thread is never blocked by another thread which
+ * is part way through pushing or pulling. It suits queues used by many threads at once; when only one thread pushes
+ * and one thread pulls, {@link JSSingleProducerQueue} is faster.<br><br>
+ * 
+ * Since other threads may change the queue at any moment, check for an empty queue by catching the
+ * {@link EmptyQueueException} thrown by <code>pull()</code>, rather than by calling <code>isEmpty()</code> first.
+ * 
+ * @author Josh
+ * @version 1.0
+ *
+ */
+public class JSConcurrentQueue<E> {
+
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<JSConcurrentQueue, Node> HEAD =
+			AtomicReferenceFieldUpdater.newUpdater(JSConcurrentQueue.class, Node.class, "head");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<JSConcurrentQueue, Node> TAIL =
+			AtomicReferenceFieldUpdater.newUpdater(JSConcurrentQueue.class, Node.class, "tail");
+	@SuppressWarnings("rawtypes")
+	private static final AtomicReferenceFieldUpdater<Node, Node> NEXT =
+			AtomicReferenceFieldUpdater.newUpdater(Node.class, Node.class, "next");
+	
+	/** Always points to a node whose data has already been pulled; the first item is in the node after it. **/
+	private volatile Node<E> head;
+	private volatile Node<E> tail;
+	private final AtomicInteger count = new AtomicInteger();
+	
+	/**
+	 * Initialises a new queue containing no data items.
+	 */
+	public JSConcurrentQueue() {
+		head = new Node<E>(null);
+		tail = head;
+	}
+	
+	/**
+	 * Determines whether the queue is currently empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return (head.next == null);
+	}
+	
+	/**
+	 * Determines how many data items are currently in the queue. While other threads are pushing and pulling, the
+	 * count may be slightly out of date by the time it is returned.
+	 * 
+	 * @return The number of data items in the queue.
+	 */
+	public int size() {
+		return Math.max(count.get(), 0);
+	}
+	
+	/**
+	 * Pulls the next data item from the front of the queue. Safe to call from any thread.
+	 * 
+	 * @return The data item from the front of the queue.
+	 */
+	public E pull() throws EmptyQueueException {
+		while (true) {
+			Node<E> first = head;
+			Node<E> last = tail;
+			Node<E> next = first.next;
+			if (first != head)
+				continue;
+			if (first == last) {
+				if (next == null)
+					throw new EmptyQueueException("Tried to pull from an empty queue.");
+				TAIL.compareAndSet(this, last, next);
+			} else {
+				E data = next.data;
+				if (HEAD.compareAndSet(this, first, next)) {
+					next.data = null;
+					count.decrementAndGet();
+					return data;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue. Safe to call from any thread.
+	 * 
+	 * @param data - The data to add to the queue.
+	 */
+	public void push(E data) {
+		Node<E> node = new Node<E>(data);
+		while (true) {
+			Node<E> last = tail;
+			Node<E> next = last.next;
+			if (last != tail)
+				continue;
+			if (next == null) {
+				if (NEXT.compareAndSet(last, null, node)) {
+					TAIL.compareAndSet(this, last, node);
+					count.incrementAndGet();
+					return;
+				}
+			} else {
+				TAIL.compareAndSet(this, last, next);
+			}
+		}
+	}
+	
+	/**
+	 * Empties the queue of all data items. Items pushed by other threads while the queue is being emptied may or may
+	 * not be removed.
+	 */
+	public void clear() {
+		try {
+			while (true)
+				pull();
+		} catch (EmptyQueueException e) {
+		}
+	}
+	
+	/* Begin internal classes */
+	
+	private static class Node<E> {
+		volatile E data;
+		volatile Node<E> next;
+		
+		Node(E data) {
+			this.data = data;
+		}
+	}
+	
+}
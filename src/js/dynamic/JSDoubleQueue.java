@@ -0,0 +1,142 @@
+package js.dynamic;
+
+/**
+ * A queue of <code>double</code> values, which follows the same First In, First Out principle as {@link JSQueue}. The values
+ * are held in a circular <code>double[]</code>, so unlike a <code>JSQueue&lt;Double&gt;</code>, pushing a value doesn't box
+ * it or create a node for it, and once the array is large enough the queue doesn't create any objects at all.<br><br>
+ * 
+ * The array doubles in size whenever it is full, and never shrinks.
+ * 
+ * @author Josh
+ * @version 1.0
+ *
+ */
+public class JSDoubleQueue {
+
+	private static final int DEFAULT_CAPACITY = 16;
+	
+	private double[] values;
+	private int head;
+	private int count;
+	
+	/**
+	 * Initialises a new queue containing no values.
+	 */
+	public JSDoubleQueue() {
+		this(DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Initialises a new queue containing no values, with room for the specified number of values before it has to grow.
+	 * 
+	 * @param initialCapacity - The number of values the queue can hold before it has to grow.
+	 */
+	public JSDoubleQueue(int initialCapacity) {
+		if (initialCapacity < 1)
+			throw new IllegalArgumentException("The capacity of a queue must be at least 1.");
+		values = new double[initialCapacity];
+	}
+	
+	/**
+	 * Determines whether the queue is currently empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return (count == 0);
+	}
+	
+	/**
+	 * Determines how many values are currently in the queue.
+	 * 
+	 * @return The number of values in the queue.
+	 */
+	public int size() {
+		return count;
+	}
+	
+	/**
+	 * Pulls the next value from the front of the queue.
+	 * 
+	 * @return The value from the front of the queue.
+	 */
+	public double pullDouble() throws EmptyQueueException {
+		if (count == 0)
+			throw new EmptyQueueException("Tried to pull from an empty queue.");
+		double value = values[head];
+		if (++ head == values.length)
+			head = 0;
+		count --;
+		return value;
+	}
+	
+	/**
+	 * Adds a new value to the end of the queue, making room for it if the queue is full.
+	 * 
+	 * @param value - The value to add to the queue.
+	 */
+	public void pushDouble(double value) {
+		if (count == values.length)
+			grow();
+		int tail = head + count;
+		if (tail >= values.length)
+			tail -= values.length;
+		values[tail] = value;
+		count ++;
+	}
+	
+	/**
+	 * Pulls as many values from the front of the queue as will fit in the specified array, in order, starting at the
+	 * beginning of the array.
+	 * 
+	 * @param destination - The array to copy the values into.
+	 * @return The number of values pulled, which is <code>0</code> if the queue is empty.
+	 */
+	public int drainTo(double[] destination) {
+		return drainTo(destination, 0, destination.length);
+	}
+	
+	/**
+	 * Pulls up to the specified number of values from the front of the queue, in order, and copies them into the specified
+	 * array.
+	 * 
+	 * @param destination - The array to copy the values into.
+	 * @param offset - The index in the array to copy the first value to.
+	 * @param maximum - The greatest number of values to pull.
+	 * @return The number of values pulled, which is <code>0</code> if the queue is empty.
+	 */
+	public int drainTo(double[] destination, int offset, int maximum) {
+		if (offset < 0 || maximum < 0 || offset + maximum > destination.length)
+			throw new IndexOutOfBoundsException("Can't copy " + maximum + " values to index " + offset
+					+ " of an array of length " + destination.length + ".");
+		int drained = Math.min(count, maximum);
+		int firstPart = Math.min(drained, values.length - head);
+		System.arraycopy(values, head, destination, offset, firstPart);
+		System.arraycopy(values, 0, destination, offset + firstPart, drained - firstPart);
+		head += drained;
+		if (head >= values.length)
+			head -= values.length;
+		count -= drained;
+		return drained;
+	}
+	
+	/**
+	 * Empties the queue of all values.
+	 */
+	public void clear() {
+		head = 0;
+		count = 0;
+	}
+	
+	/* Begin private methods */
+	
+	private void grow() {
+		double[] grown = new double[Math.max(values.length * 2, values.length + 1)];
+		int firstPart = Math.min(count, values.length - head);
+		System.arraycopy(values, head, grown, 0, firstPart);
+		System.arraycopy(values, 0, grown, firstPart, count - firstPart);
+		values = grown;
+		head = 0;
+	}
+	
+}
@@ -5,10 +5,13 @@ package js.dynamic;
 /**
  * A basic implementation of the 'Queue' dynamic structure, which adheres to the First In, First Out
  * principle. Data can only be added to the end of the queue, and can only be removed from the start
- * of the queue, in the order it was added.
+ * of the queue, in the order it was added.<br><br>
+ * 
+ * Each item is held in its own node. {@link JSArrayQueue} holds items in an array instead, which is quicker
+ * when a queue is busy.
  * 
  * @author Josh
- * @version 1.0
+ * @version 1.0.1
  *
  */
 public class JSQueue<E> {
@@ -94,7 +97,6 @@ public class JSQueue<E> {
 		start = null;
 		end = null;
 		nodeCount = 0;
-		System.gc();
 	}
 	
 }
@@ -0,0 +1,122 @@
+package js.dynamic;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A fixed-capacity queue for handing data items from one thread to another, which never locks or waits. It follows the
+ * same First In, First Out principle as {@link JSQueue}, but only one thread may push to it, and only one (other) thread
+ * may pull from it.<br><br>
+ * 
+ * Items are held in a circular array. Each thread only writes to its own end of the queue, and reads the other end's
+ * position only when its own copy suggests the queue is full or empty, so every <code>push()</code> and
+ * <code>pull()</code> finishes in a fixed number of steps, and neither creates any objects. When several threads push
+ * or pull, use {@link JSConcurrentQueue} or {@link JSBlockingQueue} instead.
+ * 
+ * @author Josh
+ * @version 1.0
+ *
+ */
+public class JSSingleProducerQueue<E> {
+
+	private final Object[] items;
+	private final int mask;
+	private final AtomicLong head = new AtomicLong();
+	private final AtomicLong tail = new AtomicLong();
+	/** The producer's copy of <code>head</code>. **/
+	private long knownHead;
+	/** The consumer's copy of <code>tail</code>. **/
+	private long knownTail;
+	
+	/**
+	 * Initialises a new queue containing no data items, which can hold up to the specified number of items.
+	 * 
+	 * @param capacity - The greatest number of data items the queue can hold, which is rounded up to a power of two.
+	 */
+	public JSSingleProducerQueue(int capacity) {
+		if (capacity < 1)
+			throw new IllegalArgumentException("The capacity of a queue must be at least 1.");
+		int size = (capacity <= 2) ? 2 : Integer.highestOneBit(capacity - 1) << 1;
+		items = new Object[size];
+		mask = size - 1;
+	}
+	
+	/**
+	 * Determines whether the queue is currently empty.
+	 * 
+	 * @return <code>true</code> if the queue is empty, <code>false</code> otherwise.
+	 */
+	public boolean isEmpty() {
+		return (size() == 0);
+	}
+	
+	/**
+	 * Determines how many data items are currently in the queue.
+	 * 
+	 * @return The number of data items in the queue.
+	 */
+	public int size() {
+		long first = head.get();
+		return (int) Math.max(Math.min(tail.get() - first, items.length), 0);
+	}
+	
+	/**
+	 * Pulls the next data item from the front of the queue. Must only be called from the consuming thread.
+	 * 
+	 * @return The data item from the front of the queue.
+	 */
+	@SuppressWarnings("unchecked")
+	public E pull() throws EmptyQueueException {
+		long position = head.get();
+		if (position >= knownTail) {
+			knownTail = tail.get();
+			if (position >= knownTail)
+				throw new EmptyQueueException("Tried to pull from an empty queue.");
+		}
+		int index = (int) position & mask;
+		E data = (E) items[index];
+		items[index] = null;
+		head.lazySet(position + 1);
+		return data;
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue. Must only be called from the producing thread.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @throws FullQueueException if the queue is full.
+	 */
+	public void push(E data) throws FullQueueException {
+		if (! offer(data))
+			throw new FullQueueException("Tried to push to a full queue.");
+	}
+	
+	/**
+	 * Adds a new data item to the end of the queue, unless the queue is full. Must only be called from the producing thread.
+	 * 
+	 * @param data - The data to add to the queue.
+	 * @return <code>true</code> if the item was added, <code>false</code> if the queue is full.
+	 */
+	public boolean offer(E data) {
+		long position = tail.get();
+		if (position - knownHead >= items.length) {
+			knownHead = head.get();
+			if (position - knownHead >= items.length)
+				return false;
+		}
+		items[(int) position & mask] = data;
+		tail.lazySet(position + 1);
+		return true;
+	}
+	
+	/**
+	 * Empties the queue of all data items. Must only be called from the consuming thread.
+	 */
+	public void clear() {
+		try {
+			while (true)
+				pull();
+		} catch (EmptyQueueException e) {
+		}
+	}
+	
+}
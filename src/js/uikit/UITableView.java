@@ -1,32 +1,59 @@
 package js.uikit;
 
 import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.event.MouseEvent;
 import java.awt.event.MouseListener;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.Vector;
 
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
 import javax.swing.ScrollPaneConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
 
 /**
  * UITableView is a list of data. Whilst called a table, there is only one column, but rows can have more than one
  * data item, making this essentially a 1.5 dimension table. Each cell can also display an arrow-like accessory, 
- * usually used to signify that more data is available by clicking that row.
+ * usually used to signify that more data is available by clicking that row.<br><br>
+ * 
+ * Rows can either be added one at a time with <code>addRow()</code>, or supplied by a {@link UITableViewDataSource}.
+ * Either way, only the rows which can be seen (plus a few either side) have a cell, and cells which scroll
+ * out of view are reused for the rows scrolling into view, so tables with many thousands of rows scroll smoothly.<br><br>
+ * 
+ * When adding or deleting many rows at once, surround the changes with <code>beginUpdates()</code> and
+ * <code>endUpdates()</code> (or pass them to <code>performBatchUpdates()</code>) so the table is only laid out
+ * and repainted once, after all of the changes have been made.
  * 
  * @author Josh
  * 
- * @version 1.0.1
+ * @version 1.2.1
  *
  */
-public class UITableView extends JScrollPane implements MouseListener {
+public class UITableView extends JScrollPane implements MouseListener, ChangeListener {
+
+	private static final int ROW_HEIGHT = 50;
+	private static final int OVERSCAN = 3;
 
-	private Vector<UITableViewCell> cells;
 	private JPanel table;
 	private int cellStyle;
-	private int selectedRow; 
+	private int selectedRow = -1; 
 	private boolean cellTitlesEditable;
 	
+	private UITableViewDataSource dataSource;
+	private RowModel rowModel = new RowModel();
+	private int rowCount;
+	private int updateDepth;
+	private boolean updatesPending;
+	private HashMap<Integer, UITableViewCell> visibleCells = new HashMap<Integer, UITableViewCell>();
+	private Vector<UITableViewCell> reusableCells = new Vector<UITableViewCell>();
+	
 	/* Begin constructors */
 	
 	/**
@@ -38,14 +65,13 @@ public class UITableView extends JScrollPane implements MouseListener {
 	public UITableView(int cellStyle) {
 		this.cellStyle = cellStyle;
 		
-		cells = new Vector<UITableViewCell>();
-		
 		table = new JPanel();
 		table.setLayout(null);
 		table.setPreferredSize(new Dimension(getWidth() - 20, 100));
 		this.setViewportView(table);
 		this.setVerticalScrollBarPolicy(ScrollPaneConstants.VERTICAL_SCROLLBAR_ALWAYS);
 		this.getVerticalScrollBar().setUnitIncrement(10);
+		this.getViewport().addChangeListener(this);
 	}
 	
 	/**
@@ -69,20 +95,35 @@ public class UITableView extends JScrollPane implements MouseListener {
 	/**
 	 * Returns the most recently clicked cell in the table as a UITableViewCell.
 	 * 
-	 * @return the last cell clicked
+	 * @return the last cell clicked, or <code>null</code> if no cell has been clicked. If the table has a data source,
+	 * 			<code>null</code> is also returned when the selected row has been scrolled out of view.
+	 * @see #getCellAtIndex(int)
 	 */
 	public UITableViewCell getSelectedCell() {
-		return cells.elementAt(selectedRow);
+		if (selectedRow < 0)
+			return null;
+		return getCellAtIndex(selectedRow);
 	}
 	
 	/**
-	 * Returns the cell at the given index as a UITableViewCell.
+	 * Returns the cell at the given index as a UITableViewCell. If the row is not in view, a new cell showing the row
+	 * is created; changes to its title and subtitle are kept, but it should not be used once rows have been added or
+	 * deleted.
 	 * 
 	 * @param index the index of the cell to return
-	 * @return the cell at the specified index
+	 * @return the cell at the specified index. If the table has a data source, <code>null</code> is returned
+	 * 			when the row is not in view.
 	 */
 	public UITableViewCell getCellAtIndex(int index) {
-		return cells.elementAt(index);
+		UITableViewCell cell = visibleCells.get(index);
+		if (cell != null || dataSource != null)
+			return cell;
+		
+		if (index < 0 || index >= rowCount)
+			throw new ArrayIndexOutOfBoundsException(index);
+		cell = rowModel.cellForRow(this, index);
+		cell.row = index;
+		return cell;
 	}
 	
 	/**
@@ -91,7 +132,16 @@ public class UITableView extends JScrollPane implements MouseListener {
 	 * @return the current number of cells in the table
 	 */
 	public int getRowCount() {
-		return cells.size();
+		return rowCount;
+	}
+	
+	/**
+	 * Returns the object supplying the rows of this table.
+	 * 
+	 * @return the table's data source, or <code>null</code> if rows are added with <code>addRow()</code>
+	 */
+	public UITableViewDataSource getDataSource() {
+		return dataSource;
 	}
 	
 	/**
@@ -106,18 +156,32 @@ public class UITableView extends JScrollPane implements MouseListener {
 	/* Begin setters */
 	
 	public void setSize(int width, int height) {
-		table.setPreferredSize(new Dimension(width - 20, 50 * cells.size()));
+		table.setPreferredSize(new Dimension(width - 20, ROW_HEIGHT * getRowCount()));
 		super.setSize(width, height);
 	}
 	
 	public void setBounds(int x, int y, int width, int height) {
 	//	table.setPreferredSize(new Dimension(width, 100 * cells.size()));
-		for (UITableViewCell cell : cells) {
+		for (UITableViewCell cell : visibleCells.values()) {
 			cell.setWidth(width - 20);
 		}
 		super.setBounds(x, y, width, height);
 	}
 	
+	/**
+	 * Sets the object supplying the rows of this table. Any rows added with <code>addRow()</code> are removed, and
+	 * the table only creates cells for the rows which can currently be seen, reusing them as the table scrolls.
+	 * Passing <code>null</code> removes the data source, leaving the table empty.
+	 * 
+	 * @param dataSource the new data source for the table
+	 */
+	public void setDataSource(UITableViewDataSource dataSource) {
+		rowModel.rows.clear();
+		reusableCells.clear();
+		this.dataSource = dataSource;
+		reloadData();
+	}
+	
 	/**
 	 * Sets whether it is possible to edit cell titles by double-clicking.
 	 * 
@@ -171,30 +235,90 @@ public class UITableView extends JScrollPane implements MouseListener {
 	 * @param selectable whether the new cell should be 'selectable' or not
 	 */
 	public void addRow(String title, String subtitle, int accessory, boolean selectable) {
-		UITableViewCell cell = new UITableViewCell(cellStyle, accessory, getWidth(), selectable, this);
-		cell.setTitle(title);
-		cell.setSubtitle(subtitle);
-		cell.setBounds(0, 50 * cells.size(), getWidth() - 20, 50); 
-		cells.add(cell);
-		table.setPreferredSize(new Dimension(getWidth() - 20, 50 * cells.size()));
-		table.add(cell);
-		table.repaint();
+		checkNoDataSource();
+		rowModel.rows.add(new Row(title, subtitle, accessory, selectable));
+		rowCount ++;
+		if (updateDepth > 0) {
+			updatesPending = true;
+			return;
+		}
+		
+		table.setPreferredSize(new Dimension(getWidth() - 20, ROW_HEIGHT * rowCount));
+		table.revalidate();
+		
+		Rectangle view = getViewport().getViewRect();
+		int y = ROW_HEIGHT * (rowCount - 1);
+		if (y < view.y + view.height + ROW_HEIGHT * OVERSCAN) {
+			layoutVisibleRows();
+			table.repaint(0, y, table.getWidth(), ROW_HEIGHT);
+		}
 	}
 	
 	/**
-	 * Deletes the specified row of the table.
+	 * Adds several new cells to the bottom of the table with no accessory, laying out the table once afterwards.
+	 * Each array holds a title, optionally followed by a subtitle.
+	 * 
+	 * @param rows the titles and subtitles of the new cells
+	 */
+	public void addRows(List<String[]> rows) {
+		checkNoDataSource();
+		rowModel.rows.ensureCapacity(rowModel.rows.size() + rows.size());
+		beginUpdates();
+		try {
+			for (String[] row : rows) {
+				addRow(row[0], (row.length > 1) ? row[1] : "");
+			}
+		} finally {
+			endUpdates();
+		}
+	}
+	
+	/**
+	 * Deletes the specified row of the table. The cells below it move up by one row, and only the part of the
+	 * table from the deleted row downwards is repainted. If the table has a data source, the row must already
+	 * have been removed from it.
 	 * 
 	 * @param row the index of the row to delete
 	 */
 	public void deleteRow(int row) {
-		UITableViewCell cell = getCellAtIndex(row);
-		cells.remove(cell);
-		table.remove(cell);
-		for (int i = 0; i < cells.size(); i ++) {
-			UITableViewCell c = getCellAtIndex(i);
-			c.setBounds(0, 50 * i, getWidth() - 20, 50); 
+		if (row < 0 || row >= rowCount)
+			throw new ArrayIndexOutOfBoundsException(row);
+		if (dataSource == null)
+			rowModel.rows.remove(row);
+		rowCount --;
+		
+		if (selectedRow == row)
+			selectedRow = -1;
+		else if (selectedRow > row)
+			selectedRow --;
+		
+		if (updateDepth > 0) {
+			recycleVisibleCells();
+			updatesPending = true;
+			return;
 		}
-		table.repaint();
+		
+		UITableViewCell deleted = visibleCells.remove(row);
+		if (deleted != null)
+			recycleCell(deleted);
+		int oldLast = row;
+		while (visibleCells.containsKey(oldLast + 1))
+			oldLast ++;
+		for (int r = row + 1; r <= oldLast; r ++) {
+			UITableViewCell cell = visibleCells.remove(r);
+			cell.row = r - 1;
+			cell.setLocation(0, ROW_HEIGHT * (r - 1));
+			visibleCells.put(r - 1, cell);
+		}
+		
+		table.setPreferredSize(new Dimension(getWidth() - 20, ROW_HEIGHT * rowCount));
+		table.revalidate();
+		layoutVisibleRows();
+		
+		Rectangle view = getViewport().getViewRect();
+		int top = ROW_HEIGHT * row;
+		int bottom = Math.max(view.y + view.height, ROW_HEIGHT * (rowCount + 1));
+		table.repaint(0, top, table.getWidth(), bottom - top);
 	}
 	
 	/**
@@ -203,26 +327,92 @@ public class UITableView extends JScrollPane implements MouseListener {
 	 * @param cell the cell to delete
 	 */
 	public void deleteCell(UITableViewCell cell) {
-		cells.remove(cell);
-		table.remove(cell);
-		for (int i = 0; i < cells.size(); i ++) {
-			UITableViewCell c = getCellAtIndex(i);
-			c.setBounds(0, 50 * i, getWidth() - 20, 50); 
+		if (cell.row >= 0)
+			deleteRow(cell.row);
+	}
+	
+	/**
+	 * Returns a cell which has scrolled out of view, so that it can be reused for another row. This should be called
+	 * by a data source's <code>cellForRow()</code> before creating a new cell.
+	 * 
+	 * @return a cell which is no longer in use, or <code>null</code> if there are none and a new cell must be created
+	 */
+	public UITableViewCell dequeueReusableCell() {
+		if (reusableCells.isEmpty())
+			return null;
+		UITableViewCell cell = reusableCells.remove(reusableCells.size() - 1);
+		cell.prepareForReuse();
+		return cell;
+	}
+	
+	/**
+	 * Asks the data source for the number of rows again, and rebuilds the cells which are in view. This should be
+	 * called whenever the data behind the table changes.
+	 */
+	public void reloadData() {
+		recycleVisibleCells();
+		rowCount = source().numberOfRows(this);
+		if (selectedRow >= getRowCount())
+			selectedRow = -1;
+		
+		if (updateDepth > 0)
+			updatesPending = true;
+		else
+			layoutAllRows();
+	}
+	
+	/**
+	 * Starts a group of changes to the table. Until the matching call to <code>endUpdates()</code>, adding, deleting
+	 * and changing rows does not lay out or repaint the table. Calls can be nested; the table is updated when the
+	 * outermost group ends.
+	 */
+	public void beginUpdates() {
+		updateDepth ++;
+	}
+	
+	/**
+	 * Ends a group of changes started by <code>beginUpdates()</code>, laying out and repainting the table once
+	 * to show all of the changes.
+	 */
+	public void endUpdates() {
+		if (updateDepth == 0)
+			throw new IllegalStateException("endUpdates() was called without a matching call to beginUpdates().");
+		updateDepth --;
+		if (updateDepth == 0 && updatesPending) {
+			updatesPending = false;
+			recycleVisibleCells();
+			layoutAllRows();
+		}
+	}
+	
+	/**
+	 * Makes a group of changes to the table, laying out and repainting the table once they have all been made.
+	 * 
+	 * @param updates the changes to make, which are run straight away on the current thread
+	 */
+	public void performBatchUpdates(Runnable updates) {
+		beginUpdates();
+		try {
+			updates.run();
+		} finally {
+			endUpdates();
 		}
-		table.repaint();
 	}
 	
 	/* Begin listener methods */
 
 	public void mouseClicked(MouseEvent e) {
-		for (int i = 0; i < cells.size(); i ++) {
-			if (e.getSource() == cells.elementAt(i)) {
-				selectedRow = i;
-			} else {
-				if (cells.elementAt(i).isSelectable())
-					cells.elementAt(i).deselect();
-			}
+		Point point = SwingUtilities.convertPoint(e.getComponent(), e.getPoint(), table);
+		int row = point.y / ROW_HEIGHT;
+		if (row < 0 || row >= rowCount)
+			return;
+		
+		if (selectedRow != row && selectedRow >= 0) {
+			UITableViewCell previous = visibleCells.get(selectedRow);
+			if (previous != null && previous.isSelectable())
+				previous.deselect();
 		}
+		selectedRow = row;
 		dispatchEvent(e);
 	}
 
@@ -242,6 +432,154 @@ public class UITableView extends JScrollPane implements MouseListener {
 		
 	}
 	
+	public void stateChanged(ChangeEvent e) {
+		if (updateDepth == 0)
+			layoutVisibleRows();
+	}
+	
 	/* Begin private methods */
 	
+	/**
+	 * Returns whichever data source is supplying the rows: either the one which has been set, or the table's own
+	 * list of rows added with <code>addRow()</code>.
+	 */
+	private UITableViewDataSource source() {
+		return (dataSource != null) ? dataSource : rowModel;
+	}
+	
+	private void checkNoDataSource() {
+		if (dataSource != null)
+			throw new IllegalStateException("Rows can't be added directly to a table with a data source; " + 
+					"add them to the data source and call reloadData() instead.");
+	}
+	
+	/**
+	 * Makes sure there is a cell for every row in view (and a few rows either side), reusing the cells of any rows
+	 * which have scrolled too far out of view.
+	 */
+	private void layoutVisibleRows() {
+		Rectangle view = getViewport().getViewRect();
+		int first = Math.max(0, view.y / ROW_HEIGHT - OVERSCAN);
+		int last = Math.min(rowCount - 1, (view.y + view.height) / ROW_HEIGHT + OVERSCAN);
+		
+		Iterator<Map.Entry<Integer, UITableViewCell>> iterator = visibleCells.entrySet().iterator();
+		while (iterator.hasNext()) {
+			Map.Entry<Integer, UITableViewCell> entry = iterator.next();
+			int row = entry.getKey();
+			if (row < first || row > last) {
+				recycleCell(entry.getValue());
+				iterator.remove();
+			}
+		}
+		
+		int width = getWidth() - 20;
+		for (int row = first; row <= last; row ++) {
+			if (visibleCells.containsKey(row))
+				continue;
+			UITableViewCell cell = source().cellForRow(this, row);
+			cell.row = row;
+			if (cell.getWidth() != width)
+				cell.setWidth(width);
+			cell.setLocation(0, ROW_HEIGHT * row);
+			if (row == selectedRow && cell.isSelectable())
+				cell.select();
+			if (cell.getParent() != table)
+				table.add(cell);
+			visibleCells.put(row, cell);
+		}
+	}
+	
+	/**
+	 * Sizes the table to fit every row and rebuilds the cells in view.
+	 */
+	private void layoutAllRows() {
+		table.setPreferredSize(new Dimension(getWidth() - 20, ROW_HEIGHT * rowCount));
+		table.revalidate();
+		layoutVisibleRows();
+		table.repaint();
+	}
+	
+	private void recycleVisibleCells() {
+		for (UITableViewCell cell : visibleCells.values()) {
+			recycleCell(cell);
+		}
+		visibleCells.clear();
+	}
+	
+	private void recycleCell(UITableViewCell cell) {
+		table.remove(cell);
+		cell.row = -1;
+		reusableCells.add(cell);
+	}
+	
+	/**
+	 * Stores a new title or subtitle for a row added with <code>addRow()</code>, after one of its cells is changed.
+	 * During <code>beginUpdates()</code> and <code>endUpdates()</code> a cell in view is left as it is, and is shown
+	 * again from the stored row when the updates end.
+	 * 
+	 * @param cell the cell which has changed
+	 * @param title the row's new title, or <code>null</code> if it has not changed
+	 * @param subtitle the row's new subtitle, or <code>null</code> if it has not changed
+	 * @return <code>true</code> if the cell should wait for the updates to end before showing the change, otherwise
+	 * <code>false</code>.
+	 */
+	boolean cellChanged(UITableViewCell cell, String title, String subtitle) {
+		int row = cell.row;
+		if (dataSource != null || row >= rowCount)
+			return false;
+		Row model = rowModel.rows.get(row);
+		if (title != null)
+			model.title = title;
+		if (subtitle != null)
+			model.subtitle = subtitle;
+		if (updateDepth == 0 || visibleCells.get(row) != cell)
+			return false;
+		updatesPending = true;
+		return true;
+	}
+	
+	/* Begin internal classes */
+	
+	private static class Row {
+		
+		String title, subtitle;
+		int accessory;
+		boolean selectable;
+		
+		Row(String title, String subtitle, int accessory, boolean selectable) {
+			this.title = title;
+			this.subtitle = subtitle;
+			this.accessory = accessory;
+			this.selectable = selectable;
+		}
+		
+	}
+	
+	/**
+	 * The data source used for rows added with <code>addRow()</code>, which keeps each row's details rather than a cell.
+	 */
+	private class RowModel implements UITableViewDataSource {
+		
+		Vector<Row> rows = new Vector<Row>();
+
+		public int numberOfRows(UITableView tableView) {
+			return rows.size();
+		}
+
+		public UITableViewCell cellForRow(UITableView tableView, int row) {
+			Row model = rows.get(row);
+			UITableViewCell cell = dequeueReusableCell();
+			if (cell == null) {
+				cell = new UITableViewCell(cellStyle, model.accessory, getWidth(), model.selectable, UITableView.this);
+			} else {
+				cell.setAccessory(model.accessory);
+				cell.setSelectable(model.selectable);
+			}
+			cell.setTitle(model.title);
+			cell.setSubtitle(model.subtitle);
+			return cell;
+		}
+		
+	}
+	
 }
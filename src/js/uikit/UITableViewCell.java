@@ -18,16 +18,20 @@ import javax.swing.JTextField;
  * 
  * @author Josh
  *
- * @version 1.0.1
+ * @version 1.1.2
  */
 public class UITableViewCell extends JPanel implements MouseListener, KeyListener {
 
 	private JLabel titleLabel, subtitleLabel, accessoryLabel;
+	private String title = "", subtitle = "";
 	private int cellStyle, accessory;
 	private UITableView table;
 	private JTextField editField;
 	private boolean selectable, editMode;
 	
+	/** The row of the table which this cell is currently showing, or -1 if it is not showing a row. **/
+	int row = -1;
+	
 	/** A simple style for a cell with a text label (black and left-aligned). **/
 	public static final int DEFAULT_CELL_STYLE = 0;
 	/** A style for a cell with a left-aligned label across the top and a left-aligned label below it
@@ -101,17 +105,7 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 			break;
 		}
 		
-		if (this.accessory == DISCLOSURE_INDICATOR) {
-			accessoryLabel = new JLabel(">", JLabel.RIGHT);
-			accessoryLabel.setFont(ACCESSORY_FONT);
-			accessoryLabel.setForeground(GREY);
-			accessoryLabel.setBounds(getWidth() - 60, 18, 30, 15);
-			add(accessoryLabel);
-		} else if (this.accessory == DETAIL_DISCLOSURE_BUTTON) {
-			accessoryLabel = new JLabel(new ImageIcon("images/DetailDisclosure.png"));
-			accessoryLabel.setBounds(getWidth() - 55, 10, 30, 30);
-			add(accessoryLabel);
-		}
+		createAccessoryLabel();
 		
 		addMouseListener(this);
 		addMouseListener(this.table);
@@ -123,7 +117,7 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 	 * @return the title of the cell.
 	 */
 	public String getTitle() {
-		return titleLabel.getText();
+		return title;
 	}
 	
 	/**
@@ -132,24 +126,32 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 	 * @return the subtitle of the cell.
 	 */
 	public String getSubtitle() {
-		return subtitleLabel.getText();
+		return subtitle;
 	}
 	
 	/**
-	 * Sets the title of the cell.
+	 * Sets the title of the cell. Between <code>beginUpdates()</code> and <code>endUpdates()</code> on the table,
+	 * the new title is shown once the updates end.
 	 * 
 	 * @param title the new title to display in the cell
 	 */
 	public void setTitle(String title) {
+		this.title = title;
+		if (row >= 0 && table.cellChanged(this, title, null))
+			return;
 		titleLabel.setText(title);
 	}
 	
 	/**
-	 * Sets the subtitle of the cell.
+	 * Sets the subtitle of the cell. Between <code>beginUpdates()</code> and <code>endUpdates()</code> on the table,
+	 * the new subtitle is shown once the updates end.
 	 * 
 	 * @param subtitle the new subtitle to display in the cell
 	 */
 	public void setSubtitle(String subtitle) {
+		this.subtitle = subtitle;
+		if (row >= 0 && table.cellChanged(this, null, subtitle))
+			return;
 		if (subtitleLabel != null)
 			subtitleLabel.setText(subtitle);
 	}
@@ -170,15 +172,44 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 		repaint();
 	}
 	
+	/**
+	 * Sets the accessory shown on the right of the cell.
+	 * 
+	 * @param accessory the new accessory for this cell, either <code>NO_ACCESSORY</code>, <code>DISCLOSURE_INDICATOR</code>
+	 * 					or <code>DETAIL_DISCLOSURE_BUTTON</code>
+	 */
+	public void setAccessory(int accessory) {
+		if (accessory == this.accessory)
+			return;
+		if (accessoryLabel != null) {
+			remove(accessoryLabel);
+			accessoryLabel = null;
+		}
+		this.accessory = accessory;
+		createAccessoryLabel();
+		repaint();
+	}
+	
 	/**
 	 * Sets whether the cell is selectable (the highlight does not disappear after clicking).
 	 * 
 	 * @param state whether or not the cell should be selectable
 	 */
-	public void setSelelctable(boolean state) {
+	public void setSelectable(boolean state) {
 		selectable = state;
 	}
 	
+	/**
+	 * Sets whether the cell is selectable (the highlight does not disappear after clicking).
+	 * 
+	 * @param state whether or not the cell should be selectable
+	 * @deprecated Misspelt; use <code>setSelectable(boolean)</code> instead.
+	 */
+	@Deprecated
+	public void setSelelctable(boolean state) {
+		setSelectable(state);
+	}
+	
 	/**
 	 * Determines whether the cell is currently selectable.
 	 * 
@@ -188,6 +219,18 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 		return selectable;
 	}
 	
+	/**
+	 * Selects this cell by highlighting it in blue, as if it had been clicked.
+	 */
+	public void select() {
+		titleLabel.setForeground(Color.WHITE);
+		if (subtitleLabel != null)
+			subtitleLabel.setForeground(Color.WHITE);
+		if (accessoryLabel != null)
+			accessoryLabel.setForeground(Color.WHITE);
+		setBackground(BLUE);
+	}
+	
 	/**
 	 * Deselects this cell by removing the blue highlight.
 	 */
@@ -204,7 +247,7 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 	 * Enables the title field for this cell to be edited using a JTextField.
 	 */
 	public void enterEditMode() {
-		editField.setText(titleLabel.getText());
+		editField.setText(title);
 		remove(titleLabel);
 		add(editField);
 		repaint();
@@ -219,22 +262,26 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 	 * during edit mode.
 	 */
 	public void exitEditMode() {
-		titleLabel.setText(editField.getText());
+		setTitle(editField.getText());
 		remove(editField);
 		add(titleLabel);
 		repaint();
 		editMode = false;
 	}
 
+	/**
+	 * Resets the cell before it is handed out again by <code>UITableView.dequeueReusableCell()</code>. Any edit in
+	 * progress is ended and the highlight is removed.
+	 */
+	public void prepareForReuse() {
+		if (editMode)
+			exitEditMode();
+		deselect();
+	}
+
 	public void mouseClicked(MouseEvent event) {
-		if (selectable) {
-			titleLabel.setForeground(Color.WHITE);
-			if (subtitleLabel != null)
-				subtitleLabel.setForeground(Color.WHITE);
-			if (accessoryLabel != null)
-				accessoryLabel.setForeground(Color.WHITE);
-			setBackground(BLUE);
-		}
+		if (selectable)
+			select();
 		if (!editMode && event.getClickCount() == 2 && table.getCellTitlesEditable())
 			enterEditMode();
 		else if (editMode)
@@ -290,4 +337,20 @@ public class UITableViewCell extends JPanel implements MouseListener, KeyListene
 		
 	}
 	
+	/* Begin private methods */
+	
+	private void createAccessoryLabel() {
+		if (accessory == DISCLOSURE_INDICATOR) {
+			accessoryLabel = new JLabel(">", JLabel.RIGHT);
+			accessoryLabel.setFont(ACCESSORY_FONT);
+			accessoryLabel.setForeground(GREY);
+			accessoryLabel.setBounds(getWidth() - 60, 18, 30, 15);
+			add(accessoryLabel);
+		} else if (accessory == DETAIL_DISCLOSURE_BUTTON) {
+			accessoryLabel = new JLabel(new ImageIcon("images/DetailDisclosure.png"));
+			accessoryLabel.setBounds(getWidth() - 55, 10, 30, 30);
+			add(accessoryLabel);
+		}
+	}
+	
 }
@@ -0,0 +1,49 @@
+package js.uikit;
+
+/**
+ * UITableViewDataSource supplies the rows of a UITableView which has been given a data source with
+ * <code>setDataSource()</code>. Rather than the table keeping a cell for every row, it only asks the data source
+ * for cells for the rows which can currently be seen, and reuses those cells as the table is scrolled.<br><br>
+ *
+ * <code>cellForRow()</code> should first call <code>dequeueReusableCell()</code> on the table to get a cell
+ * which has scrolled out of view, only creating a new cell if that returns <code>null</code>:
+ *
+ * <pre>
+ * public UITableViewCell cellForRow(UITableView tableView, int row) {
+ *     UITableViewCell cell = tableView.dequeueReusableCell();
+ *     if (cell == null)
+ *         cell = new UITableViewCell(UITableViewCell.SUBTITLE_CELL_STYLE, UITableViewCell.NO_ACCESSORY,
+ *                 tableView.getWidth(), true, tableView);
+ *     cell.setTitle(names[row]);
+ *     cell.setSubtitle(addresses[row]);
+ *     return cell;
+ * }
+ * </pre>
+ *
+ * @author Josh
+ *
+ * @version 1.0
+ *
+ */
+public interface UITableViewDataSource {
+
+	/**
+	 * Returns the number of rows in the table. This is only asked for when the data source is set, and
+	 * when <code>reloadData()</code> is called on the table.
+	 *
+	 * @param tableView the table asking for its number of rows
+	 * @return the number of rows in the table
+	 */
+	public int numberOfRows(UITableView tableView);
+
+	/**
+	 * Returns a cell showing the specified row of the table. The cell's title, subtitle, accessory and whether
+	 * it is selectable should all be set, as a reused cell will still show whichever row it was last used for.
+	 *
+	 * @param tableView the table asking for the cell
+	 * @param row the index of the row to show
+	 * @return a cell showing the row
+	 */
+	public UITableViewCell cellForRow(UITableView tableView, int row);
+
+}